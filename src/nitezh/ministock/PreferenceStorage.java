@@ -34,7 +34,9 @@ import java.util.Map;
 public class PreferenceStorage implements Storage {
 
     private SharedPreferences preferences;
-    private SharedPreferences.Editor editor;
+    // Each thread builds and applies its own edits, so one thread never commits another's
+    private final ThreadLocal<SharedPreferences.Editor> editor =
+            new ThreadLocal<SharedPreferences.Editor>();
 
     public PreferenceStorage(SharedPreferences preferences) {
         this.preferences = preferences;
@@ -62,15 +64,24 @@ public class PreferenceStorage implements Storage {
 
     @Override
     public Storage putInt(String key, int value) {
-        if (this.editor == null) this.editor = this.preferences.edit();
-        this.editor.putInt(key, value);
+        this.getEditor().putInt(key, value);
         return this;
     }
 
+    private SharedPreferences.Editor getEditor() {
+        SharedPreferences.Editor editor = this.editor.get();
+        if (editor == null) {
+            editor = this.preferences.edit();
+            this.editor.set(editor);
+        }
+        return editor;
+    }
+
     @Override
     public void apply() {
-        if (this.editor != null) this.editor.apply();
-        this.editor = null;
+        SharedPreferences.Editor editor = this.editor.get();
+        if (editor != null) editor.apply();
+        this.editor.remove();
     }
 
     @Override
@@ -85,29 +96,31 @@ public class PreferenceStorage implements Storage {
 
     @Override
     public Storage putString(String key, String value) {
-        if (this.editor == null) this.editor = this.preferences.edit();
-        this.editor.putString(key, value);
+        this.getEditor().putString(key, value);
         return this;
     }
 
     @Override
     public Storage putBoolean(String key, Boolean value) {
-        if (this.editor == null) this.editor = this.preferences.edit();
-        this.editor.putBoolean(key, value);
+        this.getEditor().putBoolean(key, value);
         return this;
     }
 
     @Override
     public Storage putFloat(String key, Float value) {
-        if (this.editor == null) this.editor = this.preferences.edit();
-        this.editor.putFloat(key, value);
+        this.getEditor().putFloat(key, value);
         return this;
     }
 
     @Override
     public Storage putLong(String key, Long value) {
-        if (this.editor == null) this.editor = this.preferences.edit();
-        this.editor.putFloat(key, value);
+        this.getEditor().putFloat(key, value);
+        return this;
+    }
+
+    @Override
+    public Storage remove(String key) {
+        this.getEditor().remove(key);
         return this;
     }
 }
@@ -24,44 +24,206 @@
 
 package nitezh.ministock;
 
+import android.content.Context;
+
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import nitezh.ministock.utils.Cache;
-import nitezh.ministock.utils.StorageCache;
+import nitezh.ministock.utils.DaemonThreadFactory;
+import nitezh.ministock.utils.SuggestionCache;
+import nitezh.ministock.utils.SymbolIndex;
 import nitezh.ministock.utils.UrlDataTools;
 
 
-class StockSuggestions {
+public class StockSuggestions {
 
     private static final String BASE_URL = "https://s.yimg.com/aq/autoc?callback=YAHOO.Finance.SymbolSuggest.ssCallback&region=US&lang=en-US&query=";
+    private static final long CACHE_TTL = 86400 * 1000L;
+    // Suggestions rarely change, so older answers are still used when the service is unreachable
+    private static final long STALE_WINDOW = 7 * 86400 * 1000L;
+    private static final int CACHE_ENTRIES = 200;
+    private static final int PERSISTED_QUERIES = 25;
+    private static final String CACHE_KEY = "suggestionCache";
+    // Kept out of the main preferences so saving suggestions never rewrites the widget settings
+    private static final String CACHE_PREFS = "_suggestions";
+    // Saving waits until lookups have been quiet this long
+    private static final long PERSIST_DELAY = 10000;
+    private static final ScheduledExecutorService mPersistExecutor =
+            Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("SuggestionPersist"));
+    private static ScheduledFuture<?> mPendingPersist;
+    private static final SuggestionCache mCache = new SuggestionCache(CACHE_ENTRIES, CACHE_TTL,
+            STALE_WINDOW);
+    private static Context mContext;
     private static final Pattern PATTERN_RESPONSE = Pattern.compile("YAHOO\\.Finance\\.SymbolSuggest\\.ssCallback\\((\\{.*?\\})\\)");
+    private static final String SEED_LISTING = "symbols.txt";
+    private static final int MAX_SUGGESTIONS = 10;
+    // Fewer local matches than this and the remote service is asked as well
+    private static final int MIN_LOCAL_SUGGESTIONS = 3;
+    private static boolean mSeeded = false;
+
+    // Loads the bundled listing and the saved suggestions once per process
+    public static synchronized void init(Context context) {
+        if (mSeeded) {
+            return;
+        }
+        mSeeded = true;
+        mContext = context.getApplicationContext();
+        // Earlier versions kept the suggestions in the main preferences
+        Storage appStorage = PreferenceStorage.getInstance(mContext);
+        String legacyCache = appStorage.getString(CACHE_KEY, "");
+        if (!legacyCache.equals("")) {
+            mCache.loadJson(legacyCache);
+            appStorage.remove(CACHE_KEY).apply();
+        }
+        mCache.loadJson(getCacheStorage(mContext).getString(CACHE_KEY, ""));
+        try {
+            InputStreamReader reader = new InputStreamReader(
+                    context.getAssets().open(SEED_LISTING), "UTF-8");
+            try {
+                SymbolIndex.getInstance().load(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (IOException ignored) {
+        }
+    }
 
-    public static List<Map<String, String>> getSuggestions(String query) {
-        List<Map<String, String>> suggestions = new ArrayList<>();
+    static List<Map<String, String>> getLocalSuggestions(String query) {
+        return SymbolIndex.getInstance().search(query, MAX_SUGGESTIONS);
+    }
+
+    // Local matches are enough to answer without asking the remote service
+    static boolean hasEnoughLocal(String query, List<Map<String, String>> localSuggestions) {
+        return localSuggestions.size() >= MIN_LOCAL_SUGGESTIONS || query.trim().equals("");
+    }
+
+    // A remote answer with fewer results than the limit holds every match for its query
+    public static boolean isComplete(List<Map<String, String>> remoteSuggestions) {
+        return remoteSuggestions.size() < MAX_SUGGESTIONS;
+    }
+
+    // Remote suggestions that also match a longer query, matching on symbol or name words
+    public static List<Map<String, String>> filterSuggestions(
+            List<Map<String, String>> suggestions, String query) {
+        String prefix = query.trim().toLowerCase();
+        List<Map<String, String>> filtered = new ArrayList<>();
+        for (Map<String, String> suggestion : suggestions) {
+            String name = suggestion.get("name").toLowerCase();
+            boolean matches = suggestion.get("symbol").toLowerCase().startsWith(prefix)
+                    || name.startsWith(prefix);
+            for (String word : name.split("[^\\p{L}\\p{N}]+")) {
+                matches = matches || word.startsWith(prefix);
+            }
+            if (matches) {
+                filtered.add(suggestion);
+            }
+        }
+        return filtered;
+    }
+
+    // Appends remote matches that the index does not know yet
+    public static List<Map<String, String>> merge(List<Map<String, String>> localSuggestions,
+                                                  List<Map<String, String>> remoteSuggestions) {
+        List<Map<String, String>> suggestions = new ArrayList<>(localSuggestions);
+        Set<String> found = new HashSet<>();
+        for (Map<String, String> suggestion : suggestions) {
+            found.add(suggestion.get("symbol"));
+        }
+        for (Map<String, String> suggestion : remoteSuggestions) {
+            if (suggestions.size() < MAX_SUGGESTIONS && found.add(suggestion.get("symbol"))) {
+                suggestions.add(suggestion);
+            }
+        }
+        return suggestions;
+    }
+
+    static List<Map<String, String>> getCachedSuggestions(String query) {
+        return mCache.get(query, System.currentTimeMillis());
+    }
+
+    static List<Map<String, String>> getStaleSuggestions(String query) {
+        return mCache.getStale(query, System.currentTimeMillis());
+    }
+
+    // Null when the service could not be reached or its answer could not be read
+    static List<Map<String, String>> getRemoteSuggestions(String query) {
         String response;
         try {
-            String url = BASE_URL + URLEncoder.encode(query, "UTF-8");
-            Cache cache = new StorageCache(null);
-            response = UrlDataTools.getCachedUrlData(url, cache, 86400);
-
+            response = UrlDataTools.getUrlData(BASE_URL
+                    + URLEncoder.encode(SuggestionCache.normalise(query), "UTF-8"));
         } catch (UnsupportedEncodingException e1) {
             response = null;
         }
 
+        List<Map<String, String>> suggestions = parseSuggestions(response);
+        if (suggestions == null) {
+            return null;
+        }
+
+        mCache.put(query, suggestions, System.currentTimeMillis());
+        schedulePersist();
+        return suggestions;
+    }
+
+    private static Storage getCacheStorage(Context context) {
+        return new PreferenceStorage(context.getSharedPreferences(
+                context.getString(R.string.prefs_name) + CACHE_PREFS, 0));
+    }
+
+    // Every new answer pushes the save back, so a burst of lookups is written once
+    private static synchronized void schedulePersist() {
+        if (mContext == null) {
+            return;
+        }
+        if (mPendingPersist != null) {
+            mPendingPersist.cancel(false);
+        }
+        mPendingPersist = mPersistExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                persistCache();
+            }
+        }, PERSIST_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    // Saves now rather than waiting, for when the search screen goes away
+    public static synchronized void flush() {
+        if (mPendingPersist != null && mPendingPersist.cancel(false)) {
+            persistCache();
+        }
+    }
+
+    private static synchronized void persistCache() {
+        getCacheStorage(mContext)
+                .putString(CACHE_KEY, mCache.toJson(PERSISTED_QUERIES))
+                .apply();
+    }
+
+    // Null when the response is missing or unreadable, as opposed to holding no matches
+    private static List<Map<String, String>> parseSuggestions(String response) {
+        List<Map<String, String>> suggestions = new ArrayList<>();
+
         // Return if empty response
         if (response == null || response.equals("")) {
-            return suggestions;
+            return null;
         }
         Matcher m = PATTERN_RESPONSE.matcher(response);
         if (m.find()) {
@@ -77,12 +239,13 @@ class StockSuggestions {
                     suggestion.put("symbol", jsonO.getString("symbol"));
                     suggestion.put("name", jsonO.getString("name"));
                     suggestions.add(suggestion);
+                    SymbolIndex.getInstance().add(suggestion.get("symbol"), suggestion.get("name"));
                 }
                 return suggestions;
 
             } catch (JSONException ignored) {
             }
         }
-        return suggestions;
+        return null;
     }
 }
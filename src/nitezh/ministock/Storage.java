@@ -47,5 +47,7 @@ public interface Storage {
 
     public Storage putLong(String key, Long value);
 
+    public Storage remove(String key);
+
     void apply();
 }
@@ -0,0 +1,203 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import nitezh.ministock.utils.DaemonThreadFactory;
+
+
+// Suggestion lookups for the search box, work for keystrokes that were already superseded is dropped
+public class SuggestionPipeline {
+
+    private static final String TAG = "Suggestions";
+    // Remote lookups wait this long for the next keystroke before starting
+    private static final long DEBOUNCE_DELAY = 300;
+    private static final long POLL_INTERVAL = 50;
+    private static final long LOOKUP_TIMEOUT = 15000;
+    private static final ExecutorService mExecutor = Executors.newCachedThreadPool(
+            new DaemonThreadFactory("Suggestions"));
+
+    private final RemoteLookup remoteLookup;
+    private final AnswerListener answerListener;
+    private final AtomicLong generation = new AtomicLong();
+    private Future<List<Map<String, String>>> inFlight;
+    private String completePrefix;
+    private List<Map<String, String>> completeResults;
+
+    SuggestionPipeline() {
+        this(new RemoteLookup() {
+            @Override
+            public List<Map<String, String>> getSuggestions(String query) {
+                return StockSuggestions.getRemoteSuggestions(query);
+            }
+        }, new AnswerListener() {
+            @Override
+            public void onAnswered(String query, String source, int results, long elapsed) {
+                Log.d(TAG, String.format("Query \"%s\" answered %s with %d results in %d ms", query,
+                        source, results, elapsed));
+            }
+        });
+    }
+
+    public SuggestionPipeline(RemoteLookup remoteLookup) {
+        this(remoteLookup, null);
+    }
+
+    public SuggestionPipeline(RemoteLookup remoteLookup, AnswerListener answerListener) {
+        this.remoteLookup = remoteLookup;
+        this.answerListener = answerListener;
+    }
+
+    public List<Map<String, String>> getSuggestions(final String query) {
+        long start = System.nanoTime();
+        long current = this.generation.incrementAndGet();
+
+        List<Map<String, String>> local = StockSuggestions.getLocalSuggestions(query);
+        if (StockSuggestions.hasEnoughLocal(query, local)) {
+            return this.finish(query, "local", start, local);
+        }
+
+        List<Map<String, String>> refined = this.refine(query);
+        if (refined != null) {
+            return this.finish(query, "refined", start, StockSuggestions.merge(local, refined));
+        }
+
+        List<Map<String, String>> cached = StockSuggestions.getCachedSuggestions(query);
+        if (cached != null) {
+            return this.finish(query, "cached", start, StockSuggestions.merge(local, cached));
+        }
+
+        if (!this.waitUnlessSuperseded(current, DEBOUNCE_DELAY)) {
+            return this.finish(query, "superseded", start, local);
+        }
+
+        Future<List<Map<String, String>>> future = mExecutor.submit(
+                new Callable<List<Map<String, String>>>() {
+                    @Override
+                    public List<Map<String, String>> call() throws Exception {
+                        return remoteLookup.getSuggestions(query);
+                    }
+                });
+        synchronized (this) {
+            if (this.inFlight != null) {
+                this.inFlight.cancel(true);
+            }
+            this.inFlight = future;
+        }
+
+        // Poll so a newer keystroke can abandon this lookup instead of queueing behind it
+        while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(LOOKUP_TIMEOUT)) {
+            if (this.generation.get() != current) {
+                future.cancel(true);
+                return this.finish(query, "cancelled", start, local);
+            }
+            try {
+                List<Map<String, String>> remote = future.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (remote == null) {
+                    return this.finishStale(query, start, local);
+                }
+                // Only a fresh answer may stand in for the longer queries that follow
+                if (StockSuggestions.isComplete(remote)) {
+                    this.setComplete(query, remote);
+                }
+                return this.finish(query, "remote", start, StockSuggestions.merge(local, remote));
+            } catch (TimeoutException ignored) {
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | CancellationException e) {
+                break;
+            }
+        }
+        future.cancel(true);
+        return this.finishStale(query, start, local);
+    }
+
+    // An older answer is better than none while the service is unreachable
+    private List<Map<String, String>> finishStale(String query, long start,
+                                                  List<Map<String, String>> local) {
+        List<Map<String, String>> stale = StockSuggestions.getStaleSuggestions(query);
+        if (stale == null) {
+            return this.finish(query, "failed", start, local);
+        }
+        return this.finish(query, "stale", start, StockSuggestions.merge(local, stale));
+    }
+
+    // A longer query can be answered from the complete results of a prefix of it
+    private synchronized List<Map<String, String>> refine(String query) {
+        if (this.completePrefix == null || !query.startsWith(this.completePrefix)) {
+            return null;
+        }
+        return StockSuggestions.filterSuggestions(this.completeResults, query);
+    }
+
+    private synchronized void setComplete(String query, List<Map<String, String>> results) {
+        this.completePrefix = query;
+        this.completeResults = new ArrayList<>(results);
+    }
+
+    private boolean waitUnlessSuperseded(long current, long delay) {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return this.generation.get() == current;
+    }
+
+    private List<Map<String, String>> finish(String query, String source, long start,
+                                             List<Map<String, String>> suggestions) {
+        if (this.answerListener != null) {
+            this.answerListener.onAnswered(query, source, suggestions.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return suggestions;
+    }
+
+    public interface RemoteLookup {
+        // Null when the service could not be asked or gave an unreadable answer
+        List<Map<String, String>> getSuggestions(String query);
+    }
+
+    public interface AnswerListener {
+        // Source is where the answer came from, such as local, cached, remote or stale
+        void onAnswered(String query, String source, int results, long elapsed);
+    }
+}
@@ -33,6 +33,7 @@ import android.database.MatrixCursor;
 import android.net.Uri;
 import android.text.TextUtils;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -47,6 +48,7 @@ public class SymbolProvider extends ContentProvider {
     private static final int SEARCH_SUGGEST = 0;
     private static final int SHORTCUT_REFRESH = 1;
     private static final UriMatcher sURIMatcher = buildUriMatcher();
+    private final SuggestionPipeline suggestionPipeline = new SuggestionPipeline();
     /**
      * The columns we'll include in our search suggestions. There are others
      * that could be used to further customise the suggestions, see the docs in
@@ -100,7 +102,9 @@ public class SymbolProvider extends ContentProvider {
 
     private Cursor getSuggestions(String query) {
         query = query == null ? "" : query.toLowerCase().trim();
-        List<Map<String, String>> suggestions = StockSuggestions.getSuggestions(query);
+        StockSuggestions.init(getContext());
+        List<Map<String, String>> suggestions = new ArrayList<>(
+                this.suggestionPipeline.getSuggestions(query));
 
         // Check whether an exact match is found in the symbol
         if (!query.equals("")) {
@@ -56,6 +56,7 @@ import nitezh.ministock.R;
 import nitezh.ministock.activities.widget.WidgetProviderBase;
 import nitezh.ministock.domain.AndroidWidgetRepository;
 import nitezh.ministock.domain.PortfolioStockRepository;
+import nitezh.ministock.domain.QuoteSnapshot;
 import nitezh.ministock.domain.StockQuote;
 
 
@@ -70,10 +71,13 @@ public class PortfolioActivity extends Activity {
         super.onCreate(savedInstanceState);
 
         Storage storage = PreferenceStorage.getInstance(this);
+        // Reuse the widgets' last quotes when there are any, otherwise fetch them
         this.portfolioRepository = new PortfolioStockRepository(
                 storage,
-                new StorageCache(storage),
-                new AndroidWidgetRepository(this)
+                new StorageCache(storage, this.getCacheDir()),
+                new AndroidWidgetRepository(this),
+                this.getFilesDir(),
+                QuoteSnapshot.getCurrent()
         );
         this.refreshView();
     }
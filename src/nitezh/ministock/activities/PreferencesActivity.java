@@ -47,6 +47,7 @@ import java.util.concurrent.Callable;
 import nitezh.ministock.DialogTools;
 import nitezh.ministock.PreferenceStorage;
 import nitezh.ministock.R;
+import nitezh.ministock.StockSuggestions;
 import nitezh.ministock.Storage;
 import nitezh.ministock.UserData;
 import nitezh.ministock.activities.widget.WidgetProviderBase;
@@ -108,6 +109,7 @@ public class PreferencesActivity extends PreferenceActivity implements OnSharedP
         super.onPause();
         // Unregister the listener whenever a key changes
         getPreferenceScreen().getSharedPreferences().unregisterOnSharedPreferenceChangeListener(this);
+        StockSuggestions.flush();
     }
 
     private void removePref(PreferenceScreen screen, String name) {
@@ -457,7 +459,7 @@ public class PreferencesActivity extends PreferenceActivity implements OnSharedP
             @Override
             public boolean onPreferenceClick(Preference preference) {
                 Storage storage = PreferenceStorage.getInstance(PreferencesActivity.this);
-                Cache cache = new StorageCache(storage);
+                Cache cache = new StorageCache(storage, PreferencesActivity.this.getCacheDir());
                 WidgetRepository widgetRepository = new AndroidWidgetRepository(PreferencesActivity.this);
                 new PortfolioStockRepository(storage, cache, widgetRepository).backupPortfolio(PreferencesActivity.this);
                 return true;
@@ -471,7 +473,7 @@ public class PreferencesActivity extends PreferenceActivity implements OnSharedP
             @Override
             public boolean onPreferenceClick(Preference preference) {
                 Storage storage = PreferenceStorage.getInstance(PreferencesActivity.this);
-                Cache cache = new StorageCache(storage);
+                Cache cache = new StorageCache(storage, PreferencesActivity.this.getCacheDir());
                 WidgetRepository widgetRepository = new AndroidWidgetRepository(PreferencesActivity.this);
                 new PortfolioStockRepository(storage, cache, widgetRepository).restorePortfolio(PreferencesActivity.this);
                 return true;
@@ -29,10 +29,17 @@ import android.appwidget.AppWidgetProvider;
 import android.content.Context;
 import android.content.Intent;
 import android.os.AsyncTask;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Parcel;
+import android.os.SystemClock;
+import android.util.Log;
+import android.widget.RemoteViews;
 
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.RejectedExecutionException;
 
 import nitezh.ministock.CustomAlarmManager;
@@ -42,28 +49,115 @@ import nitezh.ministock.utils.StorageCache;
 import nitezh.ministock.UserData;
 import nitezh.ministock.activities.PreferencesActivity;
 import nitezh.ministock.domain.AndroidWidgetRepository;
+import nitezh.ministock.domain.QuoteSnapshot;
 import nitezh.ministock.domain.StockQuote;
 import nitezh.ministock.domain.StockQuoteRepository;
+import nitezh.ministock.domain.Widget;
 import nitezh.ministock.domain.WidgetRepository;
 import nitezh.ministock.utils.DateTools;
 
 
 public class WidgetProviderBase extends AppWidgetProvider {
 
+    private static final String RENDER_TAG = "WidgetRender";
+
+    static void applyUpdate(Context context, int appWidgetId, UpdateType updateMode,
+                            QuoteSnapshot snapshot) {
+        applyUpdate(context, appWidgetId, updateMode, snapshot, 0);
+    }
+
     private static void applyUpdate(Context context, int appWidgetId, UpdateType updateMode,
-                                    HashMap<String, StockQuote> quotes, String quotesTimeStamp) {
-        WidgetView widgetView = new WidgetView(context, appWidgetId, updateMode,
-                quotes, quotesTimeStamp);
-        widgetView.setOnClickPendingIntents();
+                                    QuoteSnapshot snapshot, long tapTime) {
+        WidgetView widgetView = new WidgetView(context, appWidgetId, updateMode, snapshot);
         if (widgetView.hasPendingChanges()) {
             widgetView.applyPendingChanges();
-            AppWidgetManager.getInstance(context).updateAppWidget(appWidgetId, widgetView.getRemoteViews());
+            WidgetRenderState renderState = widgetView.getRenderState();
+            WidgetRenderState previous = WidgetRenderState.getLastRendered(appWidgetId);
+
+            // Partial updates need API 11 and a host that still has our full layout
+            boolean partial = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+                    && renderState.hasSameLayout(previous);
+            RemoteViews views = widgetView.getRemoteViews(partial ? previous : null);
+            AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+            if (!partial) {
+                appWidgetManager.updateAppWidget(appWidgetId, views);
+            } else if (widgetView.getActionCount() > 0) {
+                appWidgetManager.partiallyUpdateAppWidget(appWidgetId, views);
+            }
+            WidgetRenderState.setLastRendered(appWidgetId, renderState);
+            WidgetRenderCache.put(appWidgetId, widgetView.getRenderCache());
+            logRender(appWidgetId, partial, widgetView.getActionCount(), views);
+            logTap(appWidgetId, "fetched", tapTime);
+        }
+    }
+
+    // Swaps in the next view rendered with the last quotes, false if it has to be rebuilt
+    private static boolean applyCachedViewChange(Context context, int appWidgetId, long tapTime) {
+        WidgetRenderCache renderCache = WidgetRenderCache.get(appWidgetId);
+        WidgetRenderState previous = WidgetRenderState.getLastRendered(appWidgetId);
+        if (renderCache == null || previous == null
+                || Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+            return false;
+        }
+
+        Widget widget = new AndroidWidgetRepository(context).getWidget(appWidgetId);
+        if (!renderCache.hasSymbols(widget.getSymbols())
+                || !previous.hasLayout(WidgetView.getLayoutKey(widget))) {
+            return false;
+        }
+        if (!renderCache.canChangeView()) {
+            return true;
+        }
+
+        int view = renderCache.getNextView(widget.getPreviousView());
+        WidgetRenderState renderState = renderCache.getViewState(view);
+        if (!renderState.hasSameLayout(previous)) {
+            return false;
+        }
+        widget.setView(view);
+
+        RemoteViews views = new RemoteViews(context.getPackageName(), WidgetView.getLayoutId(widget));
+        int actionCount = renderState.applyChanges(previous,
+                new WidgetView.RemoteViewsTarget(views, widget.getTextStyle()));
+        if (actionCount > 0) {
+            AppWidgetManager.getInstance(context).partiallyUpdateAppWidget(appWidgetId, views);
+        }
+        WidgetRenderState.setLastRendered(appWidgetId, renderState);
+        logRender(appWidgetId, true, actionCount, views);
+        logTap(appWidgetId, "cached", tapTime);
+        return true;
+    }
+
+    private static void logTap(int appWidgetId, String source, long tapTime) {
+        if (tapTime > 0) {
+            Log.d(RENDER_TAG, String.format("Widget %d tap to update (%s): %d ms", appWidgetId,
+                    source, SystemClock.elapsedRealtime() - tapTime));
+        }
+    }
+
+    private static void logRender(int appWidgetId, boolean partial, int actionCount,
+                                  RemoteViews views) {
+        if (!Log.isLoggable(RENDER_TAG, Log.DEBUG)) {
+            return;
+        }
+        Parcel parcel = Parcel.obtain();
+        try {
+            views.writeToParcel(parcel, 0);
+            Log.d(RENDER_TAG, String.format("Widget %d %s update: %d actions, %d bytes",
+                    appWidgetId, partial ? "partial" : "full", actionCount, parcel.dataSize()));
+        } finally {
+            parcel.recycle();
         }
     }
 
     public static void updateWidgetAsync(Context context, int appWidgetId, UpdateType updateType) {
+        updateWidgetAsync(context, appWidgetId, updateType, 0);
+    }
+
+    private static void updateWidgetAsync(Context context, int appWidgetId, UpdateType updateType,
+                                          long tapTime) {
         try {
-            new GetDataTask().build(context, appWidgetId, updateType).execute();
+            new GetDataTask().build(context, appWidgetId, updateType, tapTime).execute();
         }
         // usually occurs when queued tasks = 128
         catch (RejectedExecutionException ignored) {
@@ -71,10 +165,7 @@ public class WidgetProviderBase extends AppWidgetProvider {
     }
 
     public static void updateWidgets(Context context, UpdateType updateType) {
-        WidgetRepository widgetRepository = new AndroidWidgetRepository(context);
-        for (int appWidgetId : widgetRepository.getIds()) {
-            WidgetProviderBase.updateWidgetAsync(context, appWidgetId, updateType);
-        }
+        WidgetRefreshCoordinator.refresh(context, updateType);
 
         CustomAlarmManager alarmManager = new CustomAlarmManager(context);
         alarmManager.setUpdateTimestamp();
@@ -117,7 +208,10 @@ public class WidgetProviderBase extends AppWidgetProvider {
         if (action.equals("LEFT")) {
             startPreferencesActivity(context, appWidgetId);
         } else if (action.equals("RIGHT")) {
-            updateWidgetAsync(context, appWidgetId, UpdateType.VIEW_CHANGE);
+            long tapTime = SystemClock.elapsedRealtime();
+            if (!applyCachedViewChange(context, appWidgetId, tapTime)) {
+                updateWidgetAsync(context, appWidgetId, UpdateType.VIEW_CHANGE, tapTime);
+            }
         }
     }
 
@@ -155,13 +249,14 @@ public class WidgetProviderBase extends AppWidgetProvider {
     }
 
     public void updateWidgetsFromCache(Context context) {
-        for (int id : new AndroidWidgetRepository(context).getIds()) {
-            updateWidgetAsync(context, id, UpdateType.VIEW_NO_UPDATE);
-        }
+        WidgetRefreshCoordinator.refresh(context, UpdateType.VIEW_NO_UPDATE);
     }
 
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        // The host may have been restarted and lost the views we diff against
+        WidgetRenderState.invalidateAll();
+        WidgetRenderCache.invalidateAll();
         new CustomAlarmManager(context).reinitialize();
         updateWidgetsFromCache(context);
     }
@@ -180,6 +275,8 @@ public class WidgetProviderBase extends AppWidgetProvider {
         WidgetRepository widgetRepository = new AndroidWidgetRepository(context);
         for (int appWidgetId : appWidgetIds) {
             widgetRepository.delWidget(appWidgetId);
+            WidgetRenderState.invalidate(appWidgetId);
+            WidgetRenderCache.invalidate(appWidgetId);
         }
         if (widgetRepository.isEmpty()) {
             new CustomAlarmManager(context).cancel();
@@ -211,13 +308,15 @@ public class WidgetProviderBase extends AppWidgetProvider {
         private Context context;
         private Integer appWidgetId;
         private UpdateType updateType;
-        private HashMap<String, StockQuote> quotes;
-        private String timeStamp;
+        private QuoteSnapshot snapshot;
+        private long tapTime;
 
-        public GetDataTask build(Context context, Integer appWidgetId, UpdateType updateType) {
+        public GetDataTask build(Context context, Integer appWidgetId, UpdateType updateType,
+                                 long tapTime) {
             this.context = context;
             this.appWidgetId = appWidgetId;
             this.updateType = updateType;
+            this.tapTime = tapTime;
 
             return this;
         }
@@ -227,21 +326,25 @@ public class WidgetProviderBase extends AppWidgetProvider {
             WidgetRepository widgetRepository = new AndroidWidgetRepository(this.context);
             Storage storage = PreferenceStorage.getInstance(this.context);
             StockQuoteRepository quoteRepository = new StockQuoteRepository(
-                    PreferenceStorage.getInstance(this.context), new StorageCache(storage),
-                    widgetRepository);
+                    PreferenceStorage.getInstance(this.context),
+                    new StorageCache(storage, this.context.getCacheDir()),
+                    widgetRepository, this.context.getFilesDir());
 
-            this.quotes = quoteRepository.getQuotes(
-                    widgetRepository.getWidget(this.appWidgetId).getSymbols(),
+            List<String> symbols = widgetRepository.getWidget(this.appWidgetId).getSymbols();
+            HashMap<String, StockQuote> quotes = quoteRepository.getQuotes(symbols,
                     updateType == UpdateType.VIEW_UPDATE);
-            this.timeStamp = quoteRepository.getTimeStamp();
+
+            // Rendered directly, the published snapshot stays the one covering every widget
+            this.snapshot = QuoteSnapshot.build(storage, quotes, quoteRepository.getTimeStamp(),
+                    Collections.singletonMap(this.appWidgetId, symbols));
 
             return null;
         }
 
         @Override
         protected void onPostExecute(Void result) {
-            applyUpdate(this.context, this.appWidgetId, this.updateType, this.quotes,
-                    this.timeStamp);
+            applyUpdate(this.context, this.appWidgetId, this.updateType, this.snapshot,
+                    this.tapTime);
         }
     }
 }
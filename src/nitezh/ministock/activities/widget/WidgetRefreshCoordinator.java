@@ -0,0 +1,196 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.activities.widget;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+import nitezh.ministock.PreferenceStorage;
+import nitezh.ministock.Storage;
+import nitezh.ministock.domain.AndroidWidgetRepository;
+import nitezh.ministock.domain.QuoteSnapshot;
+import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.domain.StockQuoteRepository;
+import nitezh.ministock.domain.WidgetRepository;
+import nitezh.ministock.utils.StorageCache;
+import nitezh.ministock.utils.UrlDataTools;
+
+import static nitezh.ministock.activities.widget.WidgetProviderBase.UpdateType;
+
+
+// Runs a single fetch for the symbols of every widget, then renders all widgets from it
+public class WidgetRefreshCoordinator {
+
+    private static final String TAG = "WidgetRefresh";
+    // Revalidations finishing close together are pushed to the widgets as one refresh
+    private static final long REVALIDATED_DELAY = 1000;
+    private static Handler mHandler;
+    private static Runnable mRevalidatedRefresh;
+    private static boolean mRunning = false;
+    private static UpdateType mPendingUpdateType = null;
+    private static Map<String, Long> mLastTimings = new LinkedHashMap<>();
+
+    private WidgetRefreshCoordinator() {
+    }
+
+    public static void refresh(Context context, UpdateType updateType) {
+        registerRevalidatedListener(context.getApplicationContext());
+        synchronized (WidgetRefreshCoordinator.class) {
+            if (mRunning) {
+                // Queue one more pass, but never downgrade a pending fetch to a redraw
+                if (mPendingUpdateType != UpdateType.VIEW_UPDATE) {
+                    mPendingUpdateType = updateType;
+                }
+                return;
+            }
+            mRunning = true;
+        }
+
+        try {
+            new RefreshTask().build(context.getApplicationContext(), updateType).execute();
+        }
+        // usually occurs when queued tasks = 128
+        catch (RejectedExecutionException ignored) {
+            synchronized (WidgetRefreshCoordinator.class) {
+                mRunning = false;
+            }
+        }
+    }
+
+    // Stale data may have been rendered, so redraw once fresher data arrives in the background
+    private static synchronized void registerRevalidatedListener(final Context context) {
+        if (mHandler != null) {
+            return;
+        }
+        mHandler = new Handler(Looper.getMainLooper());
+        mRevalidatedRefresh = new Runnable() {
+            @Override
+            public void run() {
+                refresh(context, UpdateType.VIEW_UPDATE);
+            }
+        };
+        UrlDataTools.setOnRevalidatedListener(new UrlDataTools.OnRevalidatedListener() {
+            @Override
+            public void onRevalidated(String url) {
+                mHandler.removeCallbacks(mRevalidatedRefresh);
+                mHandler.postDelayed(mRevalidatedRefresh, REVALIDATED_DELAY);
+            }
+        });
+    }
+
+    private static void onRefreshFinished(Context context, Map<String, Long> timings) {
+        UpdateType pendingUpdateType;
+        synchronized (WidgetRefreshCoordinator.class) {
+            mLastTimings = timings;
+            mRunning = false;
+            pendingUpdateType = mPendingUpdateType;
+            mPendingUpdateType = null;
+        }
+        if (pendingUpdateType != null) {
+            refresh(context, pendingUpdateType);
+        }
+    }
+
+    // Milliseconds spent in each phase of the most recent refresh
+    public static synchronized Map<String, Long> getLastTimings() {
+        return new LinkedHashMap<>(mLastTimings);
+    }
+
+    private static class RefreshTask extends AsyncTask<Object, Void, Void> {
+        private final Map<String, Long> timings = new LinkedHashMap<>();
+        private final HashMap<Integer, List<String>> widgetSymbols = new HashMap<>();
+        private Context context;
+        private UpdateType updateType;
+        private QuoteSnapshot snapshot;
+
+        public RefreshTask build(Context context, UpdateType updateType) {
+            this.context = context;
+            this.updateType = updateType;
+
+            return this;
+        }
+
+        @Override
+        protected Void doInBackground(Object... params) {
+            long start = SystemClock.elapsedRealtime();
+            WidgetRepository widgetRepository = new AndroidWidgetRepository(this.context);
+            Set<String> symbols = new HashSet<>();
+            for (int appWidgetId : widgetRepository.getIds()) {
+                List<String> symbolsForWidget = widgetRepository.getWidget(appWidgetId).getSymbols();
+                this.widgetSymbols.put(appWidgetId, symbolsForWidget);
+                symbols.addAll(symbolsForWidget);
+            }
+            long symbolsDone = SystemClock.elapsedRealtime();
+            this.timings.put("symbols", symbolsDone - start);
+
+            Storage storage = PreferenceStorage.getInstance(this.context);
+            StockQuoteRepository quoteRepository = new StockQuoteRepository(
+                    storage, new StorageCache(storage, this.context.getCacheDir()), widgetRepository,
+                    this.context.getFilesDir());
+            HashMap<String, StockQuote> quotes = quoteRepository.getQuotes(
+                    new ArrayList<>(symbols), this.updateType == UpdateType.VIEW_UPDATE);
+            long quotesDone = SystemClock.elapsedRealtime();
+            this.timings.put("quotes", quotesDone - symbolsDone);
+            if (this.updateType == UpdateType.VIEW_UPDATE) {
+                Log.d(TAG, String.format("Saved %d quote records",
+                        quoteRepository.getLastSavedRecordCount()));
+            }
+
+            this.snapshot = QuoteSnapshot.build(storage, quotes, quoteRepository.getTimeStamp(),
+                    this.widgetSymbols);
+            QuoteSnapshot.publish(this.snapshot);
+            this.timings.put("snapshot", SystemClock.elapsedRealtime() - quotesDone);
+
+            return null;
+        }
+
+        @Override
+        protected void onPostExecute(Void result) {
+            long start = SystemClock.elapsedRealtime();
+            for (int appWidgetId : this.snapshot.getWidgetIds()) {
+                WidgetProviderBase.applyUpdate(this.context, appWidgetId, this.updateType,
+                        this.snapshot);
+            }
+            this.timings.put("render", SystemClock.elapsedRealtime() - start);
+
+            Log.d(TAG, String.format("Refreshed %d widgets %s", this.widgetSymbols.size(),
+                    this.timings));
+            onRefreshFinished(this.context, this.timings);
+        }
+    }
+}
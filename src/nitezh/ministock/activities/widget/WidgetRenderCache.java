@@ -0,0 +1,82 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.activities.widget;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+
+// Cells of every enabled view of a widget for one quote snapshot, so a tap only swaps them in
+public class WidgetRenderCache {
+
+    private static final HashMap<Integer, WidgetRenderCache> mCache = new HashMap<>();
+
+    private final List<String> symbols;
+    private final WidgetRenderState[] viewStates;
+    private final boolean[] enabledViews;
+    private final boolean canChangeView;
+
+    public WidgetRenderCache(List<String> symbols, WidgetRenderState[] viewStates,
+                             boolean[] enabledViews, boolean canChangeView) {
+        this.symbols = new ArrayList<>(symbols);
+        this.viewStates = viewStates;
+        this.enabledViews = enabledViews;
+        this.canChangeView = canChangeView;
+    }
+
+    public static synchronized WidgetRenderCache get(int appWidgetId) {
+        return mCache.get(appWidgetId);
+    }
+
+    public static synchronized void put(int appWidgetId, WidgetRenderCache cache) {
+        mCache.put(appWidgetId, cache);
+    }
+
+    public static synchronized void invalidate(int appWidgetId) {
+        mCache.remove(appWidgetId);
+    }
+
+    public static synchronized void invalidateAll() {
+        mCache.clear();
+    }
+
+    // Only valid while the widget still shows the symbols it was built for
+    public boolean hasSymbols(List<String> symbols) {
+        return this.symbols.equals(symbols);
+    }
+
+    public boolean canChangeView() {
+        return this.canChangeView;
+    }
+
+    public int getNextView(int currentView) {
+        return WidgetView.getNextView(currentView, true, this.enabledViews);
+    }
+
+    public WidgetRenderState getViewState(int view) {
+        return this.viewStates[view];
+    }
+}
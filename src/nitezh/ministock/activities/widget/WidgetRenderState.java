@@ -0,0 +1,123 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.activities.widget;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+// Cell values of a rendered widget, so the next render only sends what changed
+public class WidgetRenderState {
+
+    private static final HashMap<Integer, WidgetRenderState> mLastRendered = new HashMap<>();
+
+    private final String layoutKey;
+    private final LinkedHashMap<Integer, String> texts = new LinkedHashMap<>();
+    private final LinkedHashMap<Integer, Integer> colors = new LinkedHashMap<>();
+    private final LinkedHashMap<Integer, Integer> visibilities = new LinkedHashMap<>();
+
+    public WidgetRenderState(String layoutKey) {
+        this.layoutKey = layoutKey;
+    }
+
+    public static synchronized WidgetRenderState getLastRendered(int appWidgetId) {
+        return mLastRendered.get(appWidgetId);
+    }
+
+    public static synchronized void setLastRendered(int appWidgetId, WidgetRenderState state) {
+        mLastRendered.put(appWidgetId, state);
+    }
+
+    public static synchronized void invalidate(int appWidgetId) {
+        mLastRendered.remove(appWidgetId);
+    }
+
+    // The host may have lost its views, so the next render must be a full one
+    public static synchronized void invalidateAll() {
+        mLastRendered.clear();
+    }
+
+    public void setText(int viewId, String text) {
+        this.texts.put(viewId, text);
+    }
+
+    public void setColor(int viewId, int color) {
+        this.colors.put(viewId, color);
+    }
+
+    public void setVisibility(int viewId, int visibility) {
+        this.visibilities.put(viewId, visibility);
+    }
+
+    public String getText(int viewId) {
+        return this.texts.get(viewId);
+    }
+
+    public boolean hasSameLayout(WidgetRenderState other) {
+        return other != null && this.layoutKey.equals(other.layoutKey);
+    }
+
+    public boolean hasLayout(String layoutKey) {
+        return this.layoutKey.equals(layoutKey);
+    }
+
+    // Sends values that differ from the previous state, or all of them without one
+    public int applyChanges(WidgetRenderState previous, Target target) {
+        int actions = 0;
+        for (Map.Entry<Integer, Integer> entry : this.visibilities.entrySet()) {
+            if (previous == null || !entry.getValue().equals(previous.visibilities.get(entry.getKey()))) {
+                target.setVisibility(entry.getKey(), entry.getValue());
+                actions++;
+            }
+        }
+        for (Map.Entry<Integer, String> entry : this.texts.entrySet()) {
+            String text = entry.getValue();
+            if (previous == null || !isSame(text, previous.texts.get(entry.getKey()))) {
+                target.setText(entry.getKey(), text);
+                actions++;
+            }
+        }
+        for (Map.Entry<Integer, Integer> entry : this.colors.entrySet()) {
+            if (previous == null || !entry.getValue().equals(previous.colors.get(entry.getKey()))) {
+                target.setColor(entry.getKey(), entry.getValue());
+                actions++;
+            }
+        }
+        return actions;
+    }
+
+    private static boolean isSame(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    public interface Target {
+        void setText(int viewId, String text);
+
+        void setColor(int viewId, int color);
+
+        void setVisibility(int viewId, int visibility);
+    }
+}
@@ -40,94 +40,136 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 
-import nitezh.ministock.PreferenceStorage;
 import nitezh.ministock.R;
-import nitezh.ministock.Storage;
-import nitezh.ministock.utils.StorageCache;
 import nitezh.ministock.WidgetProvider;
 import nitezh.ministock.domain.AndroidWidgetRepository;
 import nitezh.ministock.domain.PortfolioStock;
-import nitezh.ministock.domain.PortfolioStockRepository;
+import nitezh.ministock.domain.QuoteSnapshot;
 import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.domain.SymbolTable;
 import nitezh.ministock.domain.Widget;
 import nitezh.ministock.domain.WidgetRepository;
 import nitezh.ministock.domain.WidgetStock;
 import nitezh.ministock.utils.CurrencyTools;
 import nitezh.ministock.utils.NumberTools;
-import nitezh.ministock.utils.ReflectionTools;
 
 import static nitezh.ministock.activities.widget.WidgetProviderBase.UpdateType;
 import static nitezh.ministock.activities.widget.WidgetProviderBase.ViewType;
 
 public class WidgetView {
 
-    private final RemoteViews remoteViews;
     private final Widget widget;
     private final boolean hasPortfolioData;
     private final List<String> symbols;
-    private final HashMap<String, PortfolioStock> portfolioStocks;
-    private final HashMap<String, StockQuote> quotes;
+    // Indexed by symbol row, like symbols
+    private final PortfolioStock[] portfolioStocks;
+    private final StockQuote[] quotes;
+    private final boolean hasQuotes;
     private final UpdateType updateMode;
     private final String quotesTimeStamp;
     private final Context context;
     private HashMap<ViewType, Boolean> enabledViews;
+    private WidgetRenderState renderState;
+    private WidgetRenderState[] viewStates;
+    private int actionCount;
 
     public WidgetView(Context context, int appWidgetId, UpdateType updateMode,
-                      HashMap<String, StockQuote> quotes, String quotesTimeStamp) {
+                      QuoteSnapshot snapshot) {
         WidgetRepository widgetRepository = new AndroidWidgetRepository(context);
 
         this.context = context;
         this.widget = widgetRepository.getWidget(appWidgetId);
-        this.quotes = quotes;
-        this.quotesTimeStamp = quotesTimeStamp;
         this.updateMode = updateMode;
         this.symbols = widget.getSymbols();
+        int[] symbolIds = snapshot.getWidgetSymbolIds(appWidgetId);
+        if (symbolIds == null || symbolIds.length != this.symbols.size()) {
+            symbolIds = getSymbolIds(this.symbols);
+        }
+        this.quotes = snapshot.getQuotes(symbolIds);
+        this.quotesTimeStamp = snapshot.getTimeStamp();
+        this.portfolioStocks = snapshot.getPortfolioStocks(symbolIds);
+        this.hasQuotes = hasAny(this.quotes);
+        this.hasPortfolioData = hasAny(this.portfolioStocks);
 
-        Storage storage = PreferenceStorage.getInstance(context);
-        this.portfolioStocks = new PortfolioStockRepository(PreferenceStorage.getInstance(context),
-                new StorageCache(storage), widgetRepository).getStocksForSymbols(symbols);
-        this.hasPortfolioData = !portfolioStocks.isEmpty();
-
-        this.remoteViews = this.getBlankRemoteViews(this.widget, context.getPackageName());
         this.enabledViews = this.calculateEnabledViews(this.widget);
     }
 
-    private RemoteViews getBlankRemoteViews(Widget widget, String packageName) {
-        String backgroundStyle = widget.getBackgroundStyle();
-        boolean useLargeFont = widget.useLargeFont();
+    // Only needed when the snapshot was built without this widget
+    private static int[] getSymbolIds(List<String> symbols) {
+        SymbolTable symbolTable = SymbolTable.getInstance();
+        int[] ids = new int[symbols.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = symbolTable.getId(symbols.get(i));
+        }
+        return ids;
+    }
 
-        RemoteViews views;
-        if (widget.getSize() == 1) {
-            if (useLargeFont) {
-                views = new RemoteViews(packageName, R.layout.widget_1x4_large);
-            } else {
-                views = new RemoteViews(packageName, R.layout.widget_1x4);
+    private static boolean hasAny(Object[] values) {
+        for (Object value : values) {
+            if (value != null) {
+                return true;
             }
+        }
+        return false;
+    }
+
+    // Everything that is only set by a full update, cells are compared separately
+    static String getLayoutKey(Widget widget) {
+        return widget.getSize() + "/" + widget.useLargeFont() + "/" + widget.getBackgroundStyle()
+                + "/" + widget.getSymbolCount() + "/" + widget.getTextStyle();
+    }
+
+    static int getLayoutId(Widget widget) {
+        boolean useLargeFont = widget.useLargeFont();
+        if (widget.getSize() == 1) {
+            return useLargeFont ? R.layout.widget_1x4_large : R.layout.widget_1x4;
         } else if (widget.getSize() == 2) {
-            if (useLargeFont) {
-                views = new RemoteViews(packageName, R.layout.widget_2x2_large);
-            } else {
-                views = new RemoteViews(packageName, R.layout.widget_2x2);
-            }
+            return useLargeFont ? R.layout.widget_2x2_large : R.layout.widget_2x2;
         } else if (widget.getSize() == 3) {
-            if (useLargeFont) {
-                views = new RemoteViews(packageName, R.layout.widget_2x4_large);
-            } else {
-                views = new RemoteViews(packageName, R.layout.widget_2x4);
-            }
-        } else {
-            if (useLargeFont) {
-                views = new RemoteViews(packageName, R.layout.widget_1x2_large);
-            } else {
-                views = new RemoteViews(packageName, R.layout.widget_1x2);
-            }
+            return useLargeFont ? R.layout.widget_2x4_large : R.layout.widget_2x4;
         }
+        return useLargeFont ? R.layout.widget_1x2_large : R.layout.widget_1x2;
+    }
+
+    private RemoteViews getBlankRemoteViews(Widget widget, String packageName) {
+        RemoteViews views = new RemoteViews(packageName, getLayoutId(widget));
         views.setImageViewResource(R.id.widget_bg,
-                getImageViewSrcId(backgroundStyle, useLargeFont));
+                getImageViewSrcId(widget.getBackgroundStyle(), widget.useLargeFont()));
+        this.actionCount++;
         this.hideUnusedRows(views, widget.getSymbolCount());
         return views;
     }
 
+    // A full update when previous is null, otherwise only the cells that changed since it
+    public RemoteViews getRemoteViews(WidgetRenderState previous) {
+        this.actionCount = 0;
+        RemoteViews views;
+        if (previous == null) {
+            views = this.getBlankRemoteViews(this.widget, this.context.getPackageName());
+            this.setOnClickPendingIntents(views);
+        } else {
+            views = new RemoteViews(this.context.getPackageName(), getLayoutId(this.widget));
+        }
+        this.actionCount += this.renderState.applyChanges(previous,
+                new RemoteViewsTarget(views, this.widget.getTextStyle()));
+        return views;
+    }
+
+    public WidgetRenderState getRenderState() {
+        return this.renderState;
+    }
+
+    // Cells of every enabled view, built alongside the current one
+    public WidgetRenderCache getRenderCache() {
+        return new WidgetRenderCache(this.symbols, this.viewStates, this.getEnabledViewFlags(),
+                this.hasQuotes || this.canChangeView(UpdateType.VIEW_CHANGE));
+    }
+
+    // Number of actions added to the RemoteViews by the last getRemoteViews
+    public int getActionCount() {
+        return this.actionCount;
+    }
+
     private int getImageViewSrcId(String backgroundStyle, Boolean useLargeFont) {
         Integer imageViewSrcId;
         switch (backgroundStyle) {
@@ -153,9 +195,9 @@ public class WidgetView {
     }
 
     // Global formatter so we can perform global text formatting in one place
-    private SpannableString applyFormatting(String s) {
+    private static SpannableString applyFormatting(String s, boolean bold) {
         SpannableString span = new SpannableString(s);
-        if (this.widget.getTextStyle()) {
+        if (bold) {
             span.setSpan(new StyleSpan(Typeface.BOLD), 0, s.length(), 0);
         } else {
             span.setSpan(new StyleSpan(Typeface.NORMAL), 0, s.length(), 0);
@@ -163,18 +205,19 @@ public class WidgetView {
         return span;
     }
 
-    public void setOnClickPendingIntents() {
+    private void setOnClickPendingIntents(RemoteViews views) {
         Intent leftTouchIntent = new Intent(this.context, WidgetProvider.class);
         leftTouchIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, this.widget.getId());
         leftTouchIntent.setAction("LEFT");
-        this.remoteViews.setOnClickPendingIntent(R.id.widget_left,
+        views.setOnClickPendingIntent(R.id.widget_left,
                 PendingIntent.getBroadcast(this.context, this.widget.getId(), leftTouchIntent, 0));
 
         Intent rightTouchIntent = new Intent(this.context, WidgetProvider.class);
         rightTouchIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, this.widget.getId());
         rightTouchIntent.setAction("RIGHT");
-        this.remoteViews.setOnClickPendingIntent(R.id.widget_right,
+        views.setOnClickPendingIntent(R.id.widget_right,
                 PendingIntent.getBroadcast(this.context, this.widget.getId(), rightTouchIntent, 0));
+        this.actionCount += 2;
     }
 
     public HashMap<WidgetProviderBase.ViewType, Boolean> getEnabledViews() {
@@ -196,20 +239,36 @@ public class WidgetView {
         return enabledViews;
     }
 
-    private WidgetRow getRowInfo(String symbol, ViewType widgetView) {
+    private boolean[] getEnabledViewFlags() {
+        boolean[] flags = new boolean[ViewType.values().length];
+        for (ViewType viewType : ViewType.values()) {
+            flags[viewType.ordinal()] = this.enabledViews.get(viewType);
+        }
+        return flags;
+    }
+
+    // One WidgetStock per symbol row, shared by all views so values are formatted once
+    private WidgetStock[] getWidgetStocks() {
+        WidgetStock[] widgetStocks = new WidgetStock[this.symbols.size()];
+        for (int i = 0; i < widgetStocks.length; i++) {
+            StockQuote quote = this.quotes[i];
+            if (!this.symbols.get(i).equals("") && !isQuoteMissingPriceOrChange(quote)) {
+                widgetStocks[i] = new WidgetStock(quote, this.portfolioStocks[i]);
+            }
+        }
+        return widgetStocks;
+    }
+
+    private WidgetRow getRowInfo(String symbol, ViewType widgetView, WidgetStock widgetStock) {
         WidgetRow widgetRow = new WidgetRow(this.widget);
-        StockQuote quote = this.quotes.get(symbol);
 
         widgetRow.setSymbol(symbol);
 
-        if (isQuoteMissingPriceOrChange(quote)) {
+        if (widgetStock == null) {
             updateWidgetRowWithNoData(widgetRow);
             return widgetRow;
         }
 
-        PortfolioStock portfolioStock = this.portfolioStocks.get(symbol);
-        WidgetStock widgetStock = new WidgetStock(quote, portfolioStock);
-
         updateWidgetRowWithDefaults(widgetRow, widgetStock);
 
         Boolean plView = false;
@@ -396,30 +455,34 @@ public class WidgetView {
 
     private void hideUnusedRows(RemoteViews views, int count) {
         for (int i = 0; i < 11; i++) {
-            int viewId = ReflectionTools.getField("line" + i);
+            int viewId = WidgetViewIds.getLineId(i);
             if (viewId > 0) {
-                views.setViewVisibility(ReflectionTools.getField("line" + i), View.GONE);
+                views.setViewVisibility(viewId, View.GONE);
+                this.actionCount++;
             }
         }
         for (int i = 1; i < count + 1; i++) {
-            views.setViewVisibility(ReflectionTools.getField("line" + i), View.VISIBLE);
+            views.setViewVisibility(WidgetViewIds.getLineId(i), View.VISIBLE);
+            this.actionCount++;
         }
     }
 
-    public RemoteViews getRemoteViews() {
-        return remoteViews;
+    public int getNextView(UpdateType updateMode) {
+        int currentView = getNextView(this.widget.getPreviousView(),
+                updateMode == UpdateType.VIEW_CHANGE, this.getEnabledViewFlags());
+        widget.setView(currentView);
+        return currentView;
     }
 
-    public int getNextView(UpdateType updateMode) {
-        int currentView = this.widget.getPreviousView();
-        if (updateMode == UpdateType.VIEW_CHANGE) {
+    static int getNextView(int currentView, boolean change, boolean[] enabledViews) {
+        if (change) {
             currentView += 1;
             currentView = currentView % 10;
         }
 
         // Skip views as relevant
         int count = 0;
-        while (!this.getEnabledViews().get(ViewType.values()[currentView])) {
+        while (!enabledViews[currentView]) {
             count += 1;
             currentView += 1;
             currentView = currentView % 10;
@@ -429,33 +492,48 @@ public class WidgetView {
                 break;
             }
         }
-        widget.setView(currentView);
         return currentView;
     }
 
     public void setStockRowItemText(int row, int col, Object text) {
-        this.remoteViews.setTextViewText(
-                ReflectionTools.getField("text" + row + col),
-                !text.equals("") ? applyFormatting((String) text) : "");
+        this.renderState.setText(WidgetViewIds.getTextId(row, col), (String) text);
     }
 
     public void setStockRowItemColor(int row, int col, int color) {
-        this.remoteViews.setTextColor(ReflectionTools.getField("text" + row + col), color);
+        this.renderState.setColor(WidgetViewIds.getTextId(row, col), color);
     }
 
     public void applyPendingChanges() {
         int widgetDisplay = this.getNextView(this.updateMode);
+        WidgetStock[] widgetStocks = this.getWidgetStocks();
+
+        // Render the other enabled views too, so a tap does not need to fetch and rebuild
+        this.viewStates = new WidgetRenderState[ViewType.values().length];
+        for (ViewType viewType : ViewType.values()) {
+            int view = viewType.ordinal();
+            if (view == widgetDisplay || this.enabledViews.get(viewType)) {
+                this.viewStates[view] = this.buildRenderState(view, widgetStocks);
+            }
+        }
+        this.renderState = this.viewStates[widgetDisplay];
+    }
+
+    private WidgetRenderState buildRenderState(int widgetDisplay,
+                                               WidgetStock[] widgetStocks) {
+        this.renderState = new WidgetRenderState(getLayoutKey(this.widget));
         this.clear();
 
         int lineNo = 0;
-        for (String symbol : this.symbols) {
+        for (int i = 0; i < this.symbols.size(); i++) {
+            String symbol = this.symbols.get(i);
             if (symbol.equals("")) {
                 continue;
             }
 
             // Get the info for this quote
             lineNo++;
-            WidgetRow rowInfo = getRowInfo(symbol, ViewType.values()[widgetDisplay]);
+            WidgetRow rowInfo = getRowInfo(symbol, ViewType.values()[widgetDisplay],
+                    widgetStocks[i]);
 
             // Values
             setStockRowItemText(lineNo, 1, rowInfo.getSymbol());
@@ -497,26 +575,27 @@ public class WidgetView {
         // Set footer display
         switch (this.widget.getFooterVisibility()) {
             case "remove":
-                remoteViews.setViewVisibility(R.id.text_footer, View.GONE);
+                this.renderState.setVisibility(R.id.text_footer, View.GONE);
                 break;
 
             case "invisible":
-                remoteViews.setViewVisibility(R.id.text_footer, View.INVISIBLE);
+                this.renderState.setVisibility(R.id.text_footer, View.INVISIBLE);
                 break;
 
             default:
-                remoteViews.setViewVisibility(R.id.text_footer, View.VISIBLE);
+                this.renderState.setVisibility(R.id.text_footer, View.VISIBLE);
 
                 // Set time stamp
                 int footerColor = this.getFooterColor();
-                remoteViews.setTextViewText(R.id.text5, applyFormatting(this.getTimeStamp()));
-                remoteViews.setTextColor(R.id.text5, footerColor);
+                this.renderState.setText(R.id.text5, this.getTimeStamp());
+                this.renderState.setColor(R.id.text5, footerColor);
 
                 // Set the view label
-                remoteViews.setTextViewText(R.id.text6, applyFormatting(this.getLabel(widgetDisplay)));
-                remoteViews.setTextColor(R.id.text6, footerColor);
+                this.renderState.setText(R.id.text6, this.getLabel(widgetDisplay));
+                this.renderState.setColor(R.id.text6, footerColor);
                 break;
         }
+        return this.renderState;
     }
 
     public int getFooterColor() {
@@ -642,16 +721,46 @@ public class WidgetView {
     }
 
     public boolean canChangeView() {
+        return this.canChangeView(this.updateMode);
+    }
+
+    private boolean canChangeView(UpdateType updateMode) {
         HashMap<ViewType, Boolean> enabledViews = this.getEnabledViews();
         boolean hasMultipleDefaultViews = enabledViews.get(ViewType.VIEW_DAILY_PERCENT)
                 && enabledViews.get(ViewType.VIEW_DAILY_CHANGE);
 
-        return !(this.updateMode == UpdateType.VIEW_CHANGE
+        return !(updateMode == UpdateType.VIEW_CHANGE
                 && !this.hasPortfolioData
                 && !hasMultipleDefaultViews);
     }
 
     public boolean hasPendingChanges() {
-        return (!this.quotes.isEmpty() || this.canChangeView());
+        return (this.hasQuotes || this.canChangeView());
+    }
+
+    static class RemoteViewsTarget implements WidgetRenderState.Target {
+        private final RemoteViews views;
+        private final boolean bold;
+
+        RemoteViewsTarget(RemoteViews views, boolean bold) {
+            this.views = views;
+            this.bold = bold;
+        }
+
+        @Override
+        public void setText(int viewId, String text) {
+            this.views.setTextViewText(viewId,
+                    !text.equals("") ? applyFormatting(text, this.bold) : "");
+        }
+
+        @Override
+        public void setColor(int viewId, int color) {
+            this.views.setTextColor(viewId, color);
+        }
+
+        @Override
+        public void setVisibility(int viewId, int visibility) {
+            this.views.setViewVisibility(viewId, visibility);
+        }
     }
 }
@@ -0,0 +1,71 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.activities.widget;
+
+import nitezh.ministock.R;
+
+
+// View ids of the widget rows and cells, indexed by row and column
+public class WidgetViewIds {
+
+    public static final int MAX_ROWS = 10;
+    public static final int MAX_COLUMNS = 5;
+
+    private static final int[][] TEXT_IDS = {
+            {},
+            {0, R.id.text11, R.id.text12, R.id.text13, R.id.text14, R.id.text15},
+            {0, R.id.text21, R.id.text22, R.id.text23, R.id.text24, R.id.text25},
+            {0, R.id.text31, R.id.text32, R.id.text33, R.id.text34, R.id.text35},
+            {0, R.id.text41, R.id.text42, R.id.text43, R.id.text44, R.id.text45},
+            {0, R.id.text51, R.id.text52, R.id.text53, R.id.text54, R.id.text55},
+            {0, R.id.text61, R.id.text62, R.id.text63, R.id.text64, R.id.text65},
+            {0, R.id.text71, R.id.text72, R.id.text73, R.id.text74, R.id.text75},
+            {0, R.id.text81, R.id.text82, R.id.text83, R.id.text84, R.id.text85},
+            {0, R.id.text91, R.id.text92, R.id.text93, R.id.text94, R.id.text95},
+            {0, R.id.text101, R.id.text102, R.id.text103, R.id.text104, R.id.text105}
+    };
+
+    private static final int[] LINE_IDS = {
+            R.id.line0, R.id.line1, R.id.line2, R.id.line3, R.id.line4, R.id.line5,
+            R.id.line6, R.id.line7, R.id.line8, R.id.line9, R.id.line10
+    };
+
+    private WidgetViewIds() {
+    }
+
+    public static int getTextId(int row, int col) {
+        if (row < 1 || row > MAX_ROWS || col < 1 || col > MAX_COLUMNS) {
+            return 0;
+        }
+        return TEXT_IDS[row][col];
+    }
+
+    public static int getLineId(int line) {
+        if (line < 0 || line >= LINE_IDS.length) {
+            return 0;
+        }
+        return LINE_IDS[line];
+    }
+}
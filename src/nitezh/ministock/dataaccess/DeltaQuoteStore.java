@@ -0,0 +1,265 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.dataaccess;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nitezh.ministock.domain.StockQuote;
+
+
+// Persists quotes as a snapshot plus a journal of the records that changed since
+public class DeltaQuoteStore {
+
+    public static final String JOURNAL_NAME = "quotes.journal";
+    // Rewrite the snapshot once the journal holds this many records
+    public static final int COMPACT_THRESHOLD = 500;
+    private static final int MAGIC = 0x4d514a31;
+    private static final int VERSION = 2;
+    private static final int TOMBSTONE = -1;
+
+    private final QuoteSnapshotFile snapshotFile;
+    private final File journalFile;
+    private final int compactThreshold;
+    private HashMap<String, StockQuote> current;
+    private long time;
+    // Time of the snapshot on disk, stamped into the journal so a stale journal is never replayed
+    private long snapshotTime;
+    private int journalRecords;
+    private int lastWriteCount;
+
+    public DeltaQuoteStore(File dir) {
+        this(dir, COMPACT_THRESHOLD);
+    }
+
+    public DeltaQuoteStore(File dir, int compactThreshold) {
+        this.snapshotFile = new QuoteSnapshotFile(dir);
+        this.journalFile = new File(dir, JOURNAL_NAME);
+        this.compactThreshold = compactThreshold;
+    }
+
+    private static boolean isSame(StockQuote a, StockQuote b) {
+        return a.getFlags() == b.getFlags()
+                && Double.compare(a.getPriceValue(), b.getPriceValue()) == 0
+                && Double.compare(a.getChangeValue(), b.getChangeValue()) == 0
+                && Double.compare(a.getPercentValue(), b.getPercentValue()) == 0
+                && Double.compare(a.getVolumeValue(), b.getVolumeValue()) == 0
+                && isSame(a.getExchange(), b.getExchange())
+                && isSame(a.getName(), b.getName())
+                && isSame(a.getVolume(), b.getVolume());
+    }
+
+    private static boolean isSame(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    public long getTime() {
+        return this.time;
+    }
+
+    // Number of quote records written by the last call to write
+    public int getLastWriteCount() {
+        return this.lastWriteCount;
+    }
+
+    public int getJournalRecordCount() {
+        return this.journalRecords;
+    }
+
+    // Returns null if nothing has been saved yet
+    public synchronized HashMap<String, StockQuote> read() {
+        HashMap<String, StockQuote> quotes = this.snapshotFile.read();
+        if (quotes == null) {
+            this.current = null;
+            this.journalRecords = 0;
+            return null;
+        }
+        this.time = this.snapshotFile.getTime();
+        this.snapshotTime = this.time;
+        this.journalRecords = this.replayJournal(quotes);
+        this.current = quotes;
+        return new HashMap<>(quotes);
+    }
+
+    public synchronized int write(HashMap<String, StockQuote> quotes, long time) {
+        if (this.current == null) {
+            this.read();
+        }
+
+        List<StockQuote> changed = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        if (this.current != null) {
+            for (Map.Entry<String, StockQuote> entry : quotes.entrySet()) {
+                StockQuote previous = this.current.get(entry.getKey());
+                if (previous == null || !isSame(previous, entry.getValue())) {
+                    changed.add(entry.getValue());
+                }
+            }
+            for (String symbol : this.current.keySet()) {
+                if (!quotes.containsKey(symbol)) {
+                    removed.add(symbol);
+                }
+            }
+        }
+
+        int records = changed.size() + removed.size();
+        boolean written;
+        if (this.current == null || this.journalRecords + records >= this.compactThreshold) {
+            written = this.compact(quotes, time);
+            records = quotes.size();
+        } else {
+            written = this.appendJournal(changed, removed, time);
+        }
+
+        if (!written) {
+            // Leave the baseline unknown so the next write starts from what is on disk
+            this.current = null;
+            this.lastWriteCount = 0;
+            return -1;
+        }
+        this.current = new HashMap<>(quotes);
+        this.time = time;
+        this.lastWriteCount = records;
+        return records;
+    }
+
+    private boolean compact(HashMap<String, StockQuote> quotes, long time) {
+        if (!this.snapshotFile.write(quotes, time)) {
+            return false;
+        }
+        // A crash before this delete leaves a journal stamped with the old snapshot time
+        this.snapshotTime = time;
+        this.journalFile.delete();
+        this.journalRecords = 0;
+        return true;
+    }
+
+    private boolean appendJournal(List<StockQuote> changed, List<String> removed, long time) {
+        boolean isNew = !this.journalFile.exists() || this.journalFile.length() == 0;
+        FileOutputStream stream = null;
+        try {
+            stream = new FileOutputStream(this.journalFile, true);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            if (isNew) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(this.snapshotTime);
+            }
+            out.writeLong(time);
+            out.writeInt(changed.size() + removed.size());
+            for (StockQuote quote : changed) {
+                out.writeByte(quote.getFlags());
+                QuoteSnapshotFile.writeString(out, quote.getSymbol());
+                out.writeDouble(quote.getPriceValue());
+                out.writeDouble(quote.getChangeValue());
+                out.writeDouble(quote.getPercentValue());
+                out.writeDouble(quote.getVolumeValue());
+                QuoteSnapshotFile.writeString(out, quote.getExchange());
+                QuoteSnapshotFile.writeString(out, quote.getName());
+                QuoteSnapshotFile.writeString(out, quote.getVolume());
+            }
+            for (String symbol : removed) {
+                out.writeByte(TOMBSTONE);
+                QuoteSnapshotFile.writeString(out, symbol);
+            }
+            out.flush();
+            stream.getFD().sync();
+            out.close();
+            stream = null;
+            this.journalRecords += changed.size() + removed.size();
+            return true;
+        } catch (IOException ignored) {
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        return false;
+    }
+
+    // Applies complete journal entries in order, a torn final entry is ignored
+    private int replayJournal(HashMap<String, StockQuote> quotes) {
+        if (!this.journalFile.exists()) {
+            return 0;
+        }
+
+        int records = 0;
+        try {
+            ByteBuffer buffer = QuoteSnapshotFile.readFully(this.journalFile);
+            if (buffer.remaining() < 16 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || buffer.getLong() != this.snapshotTime) {
+                // The journal belongs to another snapshot, so compact over it on the next write
+                return this.compactThreshold;
+            }
+            while (buffer.hasRemaining()) {
+                long time = buffer.getLong();
+                int count = buffer.getInt();
+                HashMap<String, StockQuote> entry = new HashMap<>();
+                for (int i = 0; i < count; i++) {
+                    int flags = buffer.get();
+                    String symbol = QuoteSnapshotFile.readString(buffer);
+                    if (flags == TOMBSTONE) {
+                        entry.put(symbol, null);
+                        continue;
+                    }
+                    double price = buffer.getDouble();
+                    double change = buffer.getDouble();
+                    double percent = buffer.getDouble();
+                    double volumeValue = buffer.getDouble();
+                    String exchange = QuoteSnapshotFile.readString(buffer);
+                    String name = QuoteSnapshotFile.readString(buffer);
+                    String volume = QuoteSnapshotFile.readString(buffer);
+                    entry.put(symbol, StockQuote.fromValues(symbol, exchange, volume, name, flags,
+                            price, change, percent, volumeValue));
+                }
+                for (Map.Entry<String, StockQuote> record : entry.entrySet()) {
+                    if (record.getValue() == null) {
+                        quotes.remove(record.getKey());
+                    } else {
+                        quotes.put(record.getKey(), record.getValue());
+                    }
+                }
+                this.time = time;
+                records += count;
+            }
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException ignored) {
+            // Later appends would land after the damage, so compact on the next write
+            return Math.max(records, this.compactThreshold);
+        }
+        return records;
+    }
+}
@@ -27,17 +27,25 @@ package nitezh.ministock.dataaccess;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import nitezh.ministock.utils.Cache;
+import nitezh.ministock.utils.CacheItem;
+import nitezh.ministock.utils.JsonPullReader;
 import nitezh.ministock.utils.UrlDataTools;
 
 
 public class FxChangeRepository {
 
     private static final String BASE_URL = "http://ministocks-app-hrd.appspot.com/getcurrencydata";
+    private static final int TTL = 86400;
+
+    // The parsed table is kept until the cached response it came from expires
+    private static Map<String, String> mChanges = null;
+    private static long mChangesExpiry = 0;
 
     private boolean hasFxSymbols(List<String> symbols) {
         for (String s : symbols) {
@@ -48,26 +56,49 @@ public class FxChangeRepository {
         return false;
     }
 
-    public HashMap<String, String> getChanges(Cache cache, List<String> symbols) {
-        HashMap<String, String> changes = new HashMap<>();
+    // The returned table is shared between callers, so it cannot be modified
+    public Map<String, String> getChanges(Cache cache, List<String> symbols) {
         if (!this.hasFxSymbols(symbols)) {
-            return changes;
+            return Collections.emptyMap();
+        }
+
+        synchronized (FxChangeRepository.class) {
+            if (mChanges != null && mChangesExpiry > System.currentTimeMillis()) {
+                return mChanges;
+            }
         }
 
+        HashMap<String, String> changes = new HashMap<>();
+        String data = UrlDataTools.getCachedUrlData(BASE_URL, cache, TTL);
         try {
-            JSONObject jsonChanges = retrieveChangesAsJson(cache);
-            String symbol;
-            for (Iterator iter = jsonChanges.keys(); iter.hasNext(); ) {
-                symbol = (String) iter.next();
-                changes.put(symbol, jsonChanges.getString(symbol));
+            JsonPullReader reader = new JsonPullReader(data);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                changes.put(reader.nextName(), reader.nextString());
             }
+            reader.endObject();
         } catch (JSONException ignored) {
+            return Collections.unmodifiableMap(changes);
         }
 
-        return changes;
+        Map<String, String> sharedChanges = Collections.unmodifiableMap(changes);
+        synchronized (FxChangeRepository.class) {
+            mChanges = sharedChanges;
+            mChangesExpiry = getExpiry(cache, data);
+        }
+        return sharedChanges;
+    }
+
+    // An entry that was already old when it was read expires with that entry, not a day later
+    private static long getExpiry(Cache cache, String data) {
+        CacheItem item = cache.getItem(BASE_URL);
+        if (item != null && data.equals(item.getValue())) {
+            return item.getExpiry();
+        }
+        return System.currentTimeMillis() + TTL * 1000L;
     }
 
     public JSONObject retrieveChangesAsJson(Cache cache) throws JSONException {
-        return new JSONObject(UrlDataTools.getCachedUrlData(BASE_URL, cache, 86400));
+        return new JSONObject(UrlDataTools.getCachedUrlData(BASE_URL, cache, TTL));
     }
 }
@@ -26,12 +26,13 @@ package nitezh.ministock.dataaccess;
 
 import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.util.HashMap;
 import java.util.List;
 
 import nitezh.ministock.utils.Cache;
+import nitezh.ministock.utils.CacheItem;
+import nitezh.ministock.utils.JsonPullReader;
 import nitezh.ministock.utils.UrlDataTools;
 import nitezh.ministock.domain.StockQuote;
 
@@ -39,25 +40,25 @@ import nitezh.ministock.domain.StockQuote;
 public class GoogleStockQuoteRepository {
 
     private static final String BASE_URL = "http://finance.google.com/finance/info?client=ig&q=";
+    private static final int TTL = 300;
+    // Seconds past expiry that quotes are still shown while being refreshed
+    public static final int STALE_WINDOW = 3600;
 
     public HashMap<String, StockQuote> getQuotes(Cache cache, List<String> symbols) {
         HashMap<String, StockQuote> quotes = new HashMap<>();
-        JSONArray jsonArray;
-        JSONObject quoteJson;
+        CacheItem item = UrlDataTools.getCachedUrlItem(this.buildRequestUrl(symbols), cache, TTL,
+                STALE_WINDOW);
+        // A stale body keeps the time it was fetched, not the time it was served
+        long time = item.getExpiry() - TTL * 1000L;
         try {
-            jsonArray = this.retrieveQuotesAsJson(cache, symbols);
-            for (int i = 0; i < jsonArray.length(); i++) {
-                quoteJson = jsonArray.getJSONObject(i);
-                StockQuote quote = new StockQuote(
-                        quoteJson.optString("t"),
-                        quoteJson.optString("l_cur").replace(",", ""),
-                        quoteJson.optString("c"),
-                        quoteJson.optString("cp"),
-                        quoteJson.optString("e").replace("INDEX", ""),
-                        "0",
-                        quoteJson.optString("e"));
+            JsonPullReader reader = this.getQuotesReader(item.getValue());
+            reader.beginArray();
+            while (reader.hasNext()) {
+                StockQuote quote = this.readQuote(reader);
+                quote.setTime(time);
                 quotes.put(quote.getSymbol(), quote);
             }
+            reader.endArray();
         } catch (JSONException e) {
             return null;
         }
@@ -65,6 +66,52 @@ public class GoogleStockQuoteRepository {
         return quotes;
     }
 
+    private StockQuote readQuote(JsonPullReader reader) throws JSONException {
+        String symbol = "";
+        String price = "";
+        String change = "";
+        String percent = "";
+        String exchange = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "t":
+                    symbol = this.optString(reader.nextString());
+                    break;
+                case "l_cur":
+                    price = this.optString(reader.nextString());
+                    break;
+                case "c":
+                    change = this.optString(reader.nextString());
+                    break;
+                case "cp":
+                    percent = this.optString(reader.nextString());
+                    break;
+                case "e":
+                    exchange = this.optString(reader.nextString());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return new StockQuote(
+                symbol,
+                price.replace(",", ""),
+                change,
+                percent,
+                exchange.replace("INDEX", ""),
+                "0",
+                exchange);
+    }
+
+    private String optString(String value) {
+        return value != null ? value : "";
+    }
+
     private String buildRequestUrl(List<String> symbols) {
         StringBuilder sQuery = new StringBuilder();
         for (String s : symbols) {
@@ -78,8 +125,14 @@ public class GoogleStockQuoteRepository {
         return String.format("%s%s", BASE_URL, sQuery);
     }
 
+    // The response is prefixed with "//", so start reading at the opening bracket
+    private JsonPullReader getQuotesReader(String data) {
+        return new JsonPullReader(data, data.indexOf('['));
+    }
+
     public JSONArray retrieveQuotesAsJson(Cache cache, List<String> symbols) throws JSONException {
         String url = this.buildRequestUrl(symbols);
-        return new JSONArray(UrlDataTools.getCachedUrlData(url, cache, 300).replace("//", ""));
+        String data = UrlDataTools.getCachedUrlData(url, cache, TTL);
+        return new JSONArray(data.substring(Math.max(data.indexOf('['), 0)));
     }
 }
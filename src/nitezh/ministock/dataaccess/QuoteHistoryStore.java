@@ -0,0 +1,370 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.dataaccess;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nitezh.ministock.domain.StockQuote;
+
+
+// Price history per symbol in fixed-size ring buffers of a memory-mapped file
+public class QuoteHistoryStore {
+
+    public static final String FILE_NAME = "quotes.history";
+    // Unchanged quotes add nothing, so at 5 minute refreshes this is about 26 trading days of
+    // 6.5 hours, or 7 days for symbols that trade around the clock, 6.5 MB for 200 symbols
+    public static final int SLOTS_PER_SYMBOL = 2048;
+    public static final int MAX_SYMBOLS = 200;
+    private static final int MAGIC = 0x4d514831;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    // Symbol length, symbol bytes, head slot and sample count
+    private static final int ENTRY_SIZE = 32;
+    private static final int MAX_SYMBOL_BYTES = ENTRY_SIZE - 2 - 8;
+    // Seconds since the epoch, price and volume
+    private static final int RECORD_SIZE = 16;
+    // Times are stored as int seconds from 2000, which lasts until 2068
+    private static final long TIME_BASE = 946684800L;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File file;
+    private final int slots;
+    private final int maxSymbols;
+    private final HashMap<String, Integer> entries = new HashMap<>();
+    private RandomAccessFile randomAccessFile;
+    private MappedByteBuffer buffer;
+
+    public QuoteHistoryStore(File dir) {
+        this(dir, SLOTS_PER_SYMBOL, MAX_SYMBOLS);
+    }
+
+    public QuoteHistoryStore(File dir, int slots, int maxSymbols) {
+        this.file = new File(dir, FILE_NAME);
+        this.slots = slots;
+        this.maxSymbols = maxSymbols;
+    }
+
+    private long getFileSize() {
+        return HEADER_SIZE + (long) this.maxSymbols * ENTRY_SIZE
+                + (long) this.maxSymbols * this.slots * RECORD_SIZE;
+    }
+
+    // Maps the file on first use, a file of another layout is started afresh
+    private boolean open() {
+        if (this.buffer != null) {
+            return true;
+        }
+        try {
+            boolean exists = this.file.exists() && this.file.length() == this.getFileSize();
+            this.randomAccessFile = new RandomAccessFile(this.file, "rw");
+            this.randomAccessFile.setLength(this.getFileSize());
+            this.buffer = this.randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE,
+                    0, this.getFileSize());
+            if (!exists || !this.hasValidHeader()) {
+                this.initialise();
+            }
+            this.loadEntries();
+            return true;
+        } catch (IOException e) {
+            this.close();
+            return false;
+        }
+    }
+
+    private boolean hasValidHeader() {
+        return this.buffer.getInt(0) == MAGIC
+                && this.buffer.getInt(4) == VERSION
+                && this.buffer.getInt(8) == this.slots
+                && this.buffer.getInt(12) == this.maxSymbols;
+    }
+
+    private void initialise() {
+        for (int i = 0; i < this.maxSymbols; i++) {
+            this.buffer.putShort(this.getEntryOffset(i), (short) 0);
+        }
+        this.buffer.putInt(0, MAGIC);
+        this.buffer.putInt(4, VERSION);
+        this.buffer.putInt(8, this.slots);
+        this.buffer.putInt(12, this.maxSymbols);
+    }
+
+    private void loadEntries() {
+        this.entries.clear();
+        for (int i = 0; i < this.maxSymbols; i++) {
+            String symbol = this.getEntrySymbol(i);
+            if (symbol != null) {
+                this.entries.put(symbol, i);
+            }
+        }
+    }
+
+    public synchronized void close() {
+        this.buffer = null;
+        this.entries.clear();
+        if (this.randomAccessFile != null) {
+            try {
+                this.randomAccessFile.close();
+            } catch (IOException ignored) {
+            }
+            this.randomAccessFile = null;
+        }
+    }
+
+    // Forces the mapped pages to disk, they are otherwise written back by the OS
+    public synchronized void flush() {
+        if (this.buffer != null) {
+            this.buffer.force();
+        }
+    }
+
+    private int getEntryOffset(int entry) {
+        return HEADER_SIZE + entry * ENTRY_SIZE;
+    }
+
+    private int getRecordOffset(int entry, int slot) {
+        return HEADER_SIZE + this.maxSymbols * ENTRY_SIZE
+                + (entry * this.slots + slot) * RECORD_SIZE;
+    }
+
+    private String getEntrySymbol(int entry) {
+        int offset = this.getEntryOffset(entry);
+        int length = this.buffer.getShort(offset);
+        if (length <= 0 || length > MAX_SYMBOL_BYTES) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer view = this.buffer.duplicate();
+        view.position(offset + 2);
+        view.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private int getHead(int entry) {
+        return this.buffer.getInt(this.getEntryOffset(entry) + 2 + MAX_SYMBOL_BYTES);
+    }
+
+    private int getCount(int entry) {
+        return this.buffer.getInt(this.getEntryOffset(entry) + 6 + MAX_SYMBOL_BYTES);
+    }
+
+    private void setPosition(int entry, int head, int count) {
+        this.buffer.putInt(this.getEntryOffset(entry) + 2 + MAX_SYMBOL_BYTES, head);
+        this.buffer.putInt(this.getEntryOffset(entry) + 6 + MAX_SYMBOL_BYTES, count);
+    }
+
+    private boolean isUnchanged(int entry, int index, double price, double volume) {
+        int offset = this.getRecordOffset(entry, this.getSlot(entry, index));
+        return Double.compare(this.buffer.getDouble(offset + 4), price) == 0
+                && Float.compare(this.buffer.getFloat(offset + 12), (float) volume) == 0;
+    }
+
+    // Slot of the index-th oldest sample of an entry
+    private int getSlot(int entry, int index) {
+        return (this.getHead(entry) - this.getCount(entry) + index + this.slots) % this.slots;
+    }
+
+    private long getSeconds(int entry, int index) {
+        return this.buffer.getInt(this.getRecordOffset(entry, this.getSlot(entry, index)))
+                + TIME_BASE;
+    }
+
+    private Sample getSample(int entry, int index) {
+        int offset = this.getRecordOffset(entry, this.getSlot(entry, index));
+        return new Sample((this.buffer.getInt(offset) + TIME_BASE) * 1000L,
+                this.buffer.getDouble(offset + 4), this.buffer.getFloat(offset + 12));
+    }
+
+    // Finds the entry for a symbol, taking over the one updated longest ago when all are used
+    private int getOrCreateEntry(String symbol) {
+        Integer existing = this.entries.get(symbol);
+        if (existing != null) {
+            return existing;
+        }
+        byte[] bytes = symbol.getBytes(UTF_8);
+        if (bytes.length == 0 || bytes.length > MAX_SYMBOL_BYTES) {
+            return -1;
+        }
+
+        int entry = -1;
+        long oldest = Long.MAX_VALUE;
+        for (int i = 0; i < this.maxSymbols; i++) {
+            if (this.buffer.getShort(this.getEntryOffset(i)) <= 0) {
+                entry = i;
+                break;
+            }
+            long last = this.getCount(i) > 0 ? this.getSeconds(i, this.getCount(i) - 1) : 0;
+            if (last < oldest) {
+                oldest = last;
+                entry = i;
+            }
+        }
+        String previous = this.getEntrySymbol(entry);
+        if (previous != null) {
+            this.entries.remove(previous);
+        }
+
+        int offset = this.getEntryOffset(entry);
+        ByteBuffer view = this.buffer.duplicate();
+        view.position(offset + 2);
+        view.put(bytes);
+        this.setPosition(entry, 0, 0);
+        this.buffer.putShort(offset, (short) bytes.length);
+        this.entries.put(symbol, entry);
+        return entry;
+    }
+
+    // Samples must move forward in time, so a repeated time stamp is ignored, as is a sample
+    // with the price and volume of the last one since nothing traded in between
+    public synchronized boolean append(String symbol, long time, double price, double volume) {
+        if (!this.open()) {
+            return false;
+        }
+        int entry = this.getOrCreateEntry(symbol);
+        if (entry < 0) {
+            return false;
+        }
+        long seconds = time / 1000L;
+        int count = this.getCount(entry);
+        if (count > 0 && seconds <= this.getSeconds(entry, count - 1)) {
+            return false;
+        }
+        if (count > 0 && this.isUnchanged(entry, count - 1, price, volume)) {
+            return false;
+        }
+
+        int head = this.getHead(entry);
+        int offset = this.getRecordOffset(entry, head);
+        this.buffer.putInt(offset, (int) (seconds - TIME_BASE));
+        this.buffer.putDouble(offset + 4, price);
+        this.buffer.putFloat(offset + 12, (float) volume);
+        this.setPosition(entry, (head + 1) % this.slots, Math.min(count + 1, this.slots));
+        return true;
+    }
+
+    // Appends quotes at their provider time, so saved quotes and repeated fetches add nothing
+    public synchronized int append(Map<String, StockQuote> quotes) {
+        int appended = 0;
+        for (Map.Entry<String, StockQuote> entry : quotes.entrySet()) {
+            StockQuote quote = entry.getValue();
+            if (quote.hasPrice() && quote.getTime() > 0
+                    && this.append(entry.getKey(), quote.getTime(), quote.getPriceValue(),
+                    quote.hasVolume() ? quote.getVolumeValue() : 0)) {
+                appended++;
+            }
+        }
+        return appended;
+    }
+
+    public synchronized int getSampleCount(String symbol) {
+        Integer entry = this.open() ? this.entries.get(symbol) : null;
+        return entry != null ? this.getCount(entry) : 0;
+    }
+
+    // Samples with from <= time <= to, oldest first
+    public synchronized List<Sample> getRange(String symbol, long from, long to) {
+        List<Sample> samples = new ArrayList<>();
+        Integer entry = this.open() ? this.entries.get(symbol) : null;
+        if (entry == null) {
+            return samples;
+        }
+
+        int count = this.getCount(entry);
+        int index = this.lowerBound(entry, count, (from + 999L) / 1000L);
+        for (; index < count; index++) {
+            Sample sample = this.getSample(entry, index);
+            if (sample.getTime() > to) {
+                break;
+            }
+            samples.add(sample);
+        }
+        return samples;
+    }
+
+    // Keeps the last sample of each interval, which suits prices and the running day volume
+    public synchronized List<Sample> getDownsampled(String symbol, long from, long to,
+                                                    long interval) {
+        List<Sample> samples = new ArrayList<>();
+        long bucket = Long.MIN_VALUE;
+        for (Sample sample : this.getRange(symbol, from, to)) {
+            long sampleBucket = sample.getTime() / interval;
+            if (sampleBucket == bucket) {
+                samples.set(samples.size() - 1, sample);
+            } else {
+                samples.add(sample);
+                bucket = sampleBucket;
+            }
+        }
+        return samples;
+    }
+
+    private int lowerBound(int entry, int count, long seconds) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.getSeconds(entry, mid) < seconds) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public static class Sample {
+        private final long time;
+        private final double price;
+        private final float volume;
+
+        public Sample(long time, double price, float volume) {
+            this.time = time;
+            this.price = price;
+            this.volume = volume;
+        }
+
+        // Milliseconds, with the stored precision of one second
+        public long getTime() {
+            return this.time;
+        }
+
+        public double getPrice() {
+            return this.price;
+        }
+
+        public float getVolume() {
+            return this.volume;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.dataaccess;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import nitezh.ministock.domain.StockQuote;
+
+
+// Binary quote snapshot: a header, fixed-width numeric columns, then the string table
+public class QuoteSnapshotFile {
+
+    public static final String FILE_NAME = "quotes.snapshot";
+    private static final int MAGIC = 0x4d515331;
+    private static final int VERSION = 1;
+    // Magic, version, time and record count
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+    // Price, change, percent and volume columns, followed by the flags column
+    private static final int RECORD_SIZE = 4 * 8 + 1;
+    private static final String CHARSET = "UTF-8";
+
+    private final File file;
+    private long time;
+
+    public QuoteSnapshotFile(File dir) {
+        this(dir, FILE_NAME);
+    }
+
+    public QuoteSnapshotFile(File dir, String name) {
+        this.file = new File(dir, name);
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(CHARSET);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer buffer) throws UnsupportedEncodingException {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                length, CHARSET);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    public File getFile() {
+        return this.file;
+    }
+
+    public boolean exists() {
+        return this.file.exists();
+    }
+
+    // Time of the quotes in the last snapshot read
+    public long getTime() {
+        return this.time;
+    }
+
+    // Writes to a temporary file first, so readers never see a partial snapshot
+    public boolean write(HashMap<String, StockQuote> quotes, long time) {
+        List<StockQuote> records = new ArrayList<>(quotes.values());
+        File tmpFile = new File(this.file.getPath() + ".tmp");
+        FileOutputStream stream = null;
+        try {
+            stream = new FileOutputStream(tmpFile);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(time);
+            out.writeInt(records.size());
+            for (StockQuote quote : records) {
+                out.writeDouble(quote.getPriceValue());
+            }
+            for (StockQuote quote : records) {
+                out.writeDouble(quote.getChangeValue());
+            }
+            for (StockQuote quote : records) {
+                out.writeDouble(quote.getPercentValue());
+            }
+            for (StockQuote quote : records) {
+                out.writeDouble(quote.getVolumeValue());
+            }
+            for (StockQuote quote : records) {
+                out.writeByte(quote.getFlags());
+            }
+            for (StockQuote quote : records) {
+                writeString(out, quote.getSymbol());
+                writeString(out, quote.getExchange());
+                writeString(out, quote.getName());
+                writeString(out, quote.getVolume());
+            }
+            out.flush();
+            stream.getFD().sync();
+            out.close();
+            stream = null;
+            return tmpFile.renameTo(this.file);
+        } catch (IOException ignored) {
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        tmpFile.delete();
+        return false;
+    }
+
+    static ByteBuffer readFully(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            return buffer;
+        } finally {
+            raf.close();
+        }
+    }
+
+    // Returns null if there is no usable snapshot
+    public HashMap<String, StockQuote> read() {
+        if (!this.file.exists()) {
+            return null;
+        }
+
+        try {
+            ByteBuffer buffer = readFully(this.file);
+            if (buffer.remaining() < HEADER_SIZE) {
+                return null;
+            }
+            return this.parse(buffer);
+        } catch (IOException | RuntimeException ignored) {
+        }
+        return null;
+    }
+
+    private HashMap<String, StockQuote> parse(ByteBuffer buffer)
+            throws UnsupportedEncodingException {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+        long time = buffer.getLong();
+        int count = buffer.getInt();
+        if (count < 0 || buffer.remaining() < count * RECORD_SIZE) {
+            return null;
+        }
+
+        int priceOffset = HEADER_SIZE;
+        int changeOffset = priceOffset + count * 8;
+        int percentOffset = changeOffset + count * 8;
+        int volumeOffset = percentOffset + count * 8;
+        int flagsOffset = volumeOffset + count * 8;
+        buffer.position(flagsOffset + count);
+
+        HashMap<String, StockQuote> quotes = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String symbol = readString(buffer);
+            String exchange = readString(buffer);
+            String name = readString(buffer);
+            String volume = readString(buffer);
+            if (symbol == null) {
+                return null;
+            }
+            quotes.put(symbol, StockQuote.fromValues(symbol, exchange, volume, name,
+                    buffer.get(flagsOffset + i),
+                    buffer.getDouble(priceOffset + i * 8),
+                    buffer.getDouble(changeOffset + i * 8),
+                    buffer.getDouble(percentOffset + i * 8),
+                    buffer.getDouble(volumeOffset + i * 8)));
+        }
+        this.time = time;
+        return quotes;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.dataaccess;
+
+
+// Reads the Yahoo quotes csv row by row straight out of the response text, without
+// splitting it into lines or building intermediate arrays for every row
+public class YahooCsvReader {
+
+    public static final int FIELD_SYMBOL = 0;
+    public static final int FIELD_PRICE = 3;
+    public static final int FIELD_CHANGE = 4;
+    public static final int FIELD_PERCENT = 5;
+    public static final int FIELD_EXCHANGE = 6;
+    public static final int FIELD_VOLUME = 7;
+    public static final int FIELD_NAME = 8;
+    private static final int COUNT_FIELDS = 9;
+    private static final boolean[] WANTED_FIELDS = {
+            true, false, false, true, true, true, true, true, true
+    };
+
+    private final String csv;
+    private final int length;
+    private final String[] fields = new String[COUNT_FIELDS];
+    private final StringBuilder builder = new StringBuilder();
+    private int position = 0;
+
+    public YahooCsvReader(String csv) {
+        this.csv = csv;
+        this.length = csv.length();
+    }
+
+    // Moves to the next row that has all fields, returns false once the text is exhausted
+    public boolean nextRow() {
+        while (this.position < this.length) {
+            int lineEnd = this.csv.indexOf('\n', this.position);
+            if (lineEnd == -1) {
+                lineEnd = this.length;
+            }
+            boolean isComplete = this.readFields(this.position, lineEnd);
+            this.position = lineEnd + 1;
+            if (isComplete) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getField(int field) {
+        return this.fields[field];
+    }
+
+    // The last field takes the rest of the line, so commas in names are kept
+    private boolean readFields(int start, int lineEnd) {
+        int fieldStart = start;
+        for (int field = 0; field < COUNT_FIELDS; field++) {
+            int fieldEnd = lineEnd;
+            if (field < COUNT_FIELDS - 1) {
+                fieldEnd = this.csv.indexOf(',', fieldStart);
+                if (fieldEnd == -1 || fieldEnd > lineEnd) {
+                    return false;
+                }
+            }
+            this.fields[field] = WANTED_FIELDS[field] ? this.unquote(fieldStart, fieldEnd) : null;
+            fieldStart = fieldEnd + 1;
+        }
+        return true;
+    }
+
+    private String unquote(int start, int end) {
+        int quoteCount = 0;
+        for (int i = start; i < end; i++) {
+            if (this.csv.charAt(i) == '"') {
+                quoteCount++;
+            }
+        }
+        if (quoteCount == 0) {
+            return this.csv.substring(start, end);
+        }
+        if (quoteCount == 2 && this.csv.charAt(start) == '"' && this.csv.charAt(end - 1) == '"') {
+            return this.csv.substring(start + 1, end - 1);
+        }
+
+        this.builder.setLength(0);
+        for (int i = start; i < end; i++) {
+            char c = this.csv.charAt(i);
+            if (c != '"') {
+                this.builder.append(c);
+            }
+        }
+        return this.builder.toString();
+    }
+}
@@ -28,11 +28,22 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import nitezh.ministock.utils.Cache;
+import nitezh.ministock.utils.CacheItem;
 import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.utils.DaemonThreadFactory;
 import nitezh.ministock.utils.UrlDataTools;
 
 
@@ -40,43 +51,97 @@ public class YahooStockQuoteRepository {
 
     private static final String BASE_URL = "http://download.finance.yahoo.com/d/quotes.csv";
     private static final String FORMAT = "sd1t1l1c1p2xvn";
-    private static final int COUNT_FIELDS = 9;
+    private static final int TTL = 300;
+    public static final int DEFAULT_CHUNK_SIZE = 50;
+    // Seconds past expiry that quotes are still shown while being refreshed
+    public static final int STALE_WINDOW = 3600;
+    private static final int MAX_CONCURRENT_CHUNKS = 4;
+    private static final ExecutorService mChunkExecutor = Executors.newFixedThreadPool(
+            MAX_CONCURRENT_CHUNKS, new DaemonThreadFactory("YahooChunk"));
     private final FxChangeRepository fxChangeRepository;
+    private final int chunkSize;
 
     public YahooStockQuoteRepository(FxChangeRepository fxChangeRepository) {
+        this(fxChangeRepository, DEFAULT_CHUNK_SIZE);
+    }
+
+    public YahooStockQuoteRepository(FxChangeRepository fxChangeRepository, int chunkSize) {
         this.fxChangeRepository = fxChangeRepository;
+        this.chunkSize = Math.max(chunkSize, 1);
     }
 
-    public HashMap<String, StockQuote> getQuotes(Cache cache, List<String> symbols) {
+    public HashMap<String, StockQuote> getQuotes(final Cache cache, List<String> symbols) {
+        // Each chunk is a separate request, so a failed chunk only loses its own symbols
+        List<List<String>> chunks = this.getChunks(symbols);
+        List<Future<CacheItem>> futures = new ArrayList<>();
+        for (final List<String> chunk : chunks) {
+            futures.add(mChunkExecutor.submit(new Callable<CacheItem>() {
+                @Override
+                public CacheItem call() throws Exception {
+                    return getQuotesItem(cache, chunk);
+                }
+            }));
+        }
+
+        // Look up FX changes while the chunks are being fetched
+        Map<String, String> fxChanges = this.fxChangeRepository.getChanges(cache, symbols);
+
         HashMap<String, StockQuote> quotes = new HashMap<>();
-        HashMap<String, String> fxChanges = this.fxChangeRepository.getChanges(cache, symbols);
-        JSONArray jsonArray;
-        JSONObject quoteJson;
-
-        try {
-            jsonArray = this.retrieveQuotesAsJson(cache, symbols);
-            if (jsonArray != null) {
-                for (int i = 0; i < jsonArray.length(); i++) {
-                    quoteJson = jsonArray.getJSONObject(i);
-                    StockQuote quote = new StockQuote(
-                            quoteJson.optString("symbol"),
-                            quoteJson.optString("price"),
-                            quoteJson.optString("change"),
-                            quoteJson.optString("percent"),
-                            quoteJson.optString("exchange"),
-                            quoteJson.optString("volume"),
-                            quoteJson.optString("name"),
-                            fxChanges.get(quoteJson.optString("symbol")));
-                    quotes.put(quote.getSymbol(), quote);
+        boolean hasFailed = false;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                CacheItem quotesItem = futures.get(i).get();
+                if (isDataInvalid(quotesItem.getValue())) {
+                    hasFailed = true;
+                } else {
+                    // A stale body keeps the time it was fetched, not the time it was served
+                    this.addQuotes(quotes, quotesItem.getValue(), new HashSet<>(chunks.get(i)),
+                            fxChanges, quotesItem.getExpiry() - TTL * 1000L);
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                hasFailed = true;
+            } catch (ExecutionException e) {
+                hasFailed = true;
             }
-        } catch (JSONException e) {
-            return null;
         }
 
+        if (hasFailed && quotes.isEmpty()) {
+            return null;
+        }
         return quotes;
     }
 
+    private void addQuotes(HashMap<String, StockQuote> quotes, String quotesCsv,
+                           Set<String> symbols, Map<String, String> fxChanges, long time) {
+        YahooCsvReader reader = new YahooCsvReader(quotesCsv);
+        while (reader.nextRow()) {
+            String symbol = reader.getField(YahooCsvReader.FIELD_SYMBOL);
+            if (!symbols.contains(symbol)) {
+                continue;
+            }
+            StockQuote quote = new StockQuote(
+                    symbol,
+                    reader.getField(YahooCsvReader.FIELD_PRICE),
+                    reader.getField(YahooCsvReader.FIELD_CHANGE),
+                    reader.getField(YahooCsvReader.FIELD_PERCENT),
+                    reader.getField(YahooCsvReader.FIELD_EXCHANGE),
+                    reader.getField(YahooCsvReader.FIELD_VOLUME),
+                    reader.getField(YahooCsvReader.FIELD_NAME),
+                    fxChanges.get(symbol));
+            quote.setTime(time);
+            quotes.put(symbol, quote);
+        }
+    }
+
+    private List<List<String>> getChunks(List<String> symbols) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < symbols.size(); i += this.chunkSize) {
+            chunks.add(symbols.subList(i, Math.min(i + this.chunkSize, symbols.size())));
+        }
+        return chunks;
+    }
+
     private String buildRequestUrl(List<String> symbols) {
         StringBuilder sQuery = new StringBuilder();
         for (String s : symbols) {
@@ -90,44 +155,37 @@ public class YahooStockQuoteRepository {
         return String.format("%s?f=%s&s=%s", BASE_URL, FORMAT, sQuery);
     }
 
-    private String getQuotesCsv(Cache cache, List<String> symbols) {
+    private CacheItem getQuotesItem(Cache cache, List<String> symbols) {
         String url = this.buildRequestUrl(symbols);
-        return UrlDataTools.getCachedUrlData(url, cache, 300);
+        return UrlDataTools.getCachedUrlItem(url, cache, TTL, STALE_WINDOW);
     }
 
     private boolean isDataInvalid(String quotesCsv) {
-        return (quotesCsv.equals("Missing Symbols List.") || quotesCsv.equals(""));
-    }
-
-    private String[] parseCsvLine(String line) {
-        return line.replace("\"", "").split(",", COUNT_FIELDS);
-    }
-
-    private boolean isCsvLineInvalid(String[] values, List<String> symbols) {
-        return (values.length < COUNT_FIELDS) || (!symbols.contains(values[0]));
+        return (quotesCsv == null || quotesCsv.equals("Missing Symbols List.")
+                || quotesCsv.equals(""));
     }
 
     public JSONArray retrieveQuotesAsJson(Cache cache, List<String> symbols) throws JSONException {
-        String csvText = getQuotesCsv(cache, symbols);
+        String csvText = getQuotesItem(cache, symbols).getValue();
         if (isDataInvalid(csvText)) {
             return null;
         }
 
         JSONArray quotes = new JSONArray();
-        for (String line : csvText.split("\n")) {
-            String[] values = parseCsvLine(line);
-            if (isCsvLineInvalid(values, symbols)) {
+        YahooCsvReader reader = new YahooCsvReader(csvText);
+        while (reader.nextRow()) {
+            if (!symbols.contains(reader.getField(YahooCsvReader.FIELD_SYMBOL))) {
                 continue;
             }
 
             JSONObject data = new JSONObject();
-            data.put("symbol", values[0]);
-            data.put("price", values[3]);
-            data.put("change", values[4]);
-            data.put("percent", values[5]);
-            data.put("exchange", values[6]);
-            data.put("volume", values[7]);
-            data.put("name", values[8]);
+            data.put("symbol", reader.getField(YahooCsvReader.FIELD_SYMBOL));
+            data.put("price", reader.getField(YahooCsvReader.FIELD_PRICE));
+            data.put("change", reader.getField(YahooCsvReader.FIELD_CHANGE));
+            data.put("percent", reader.getField(YahooCsvReader.FIELD_PERCENT));
+            data.put("exchange", reader.getField(YahooCsvReader.FIELD_EXCHANGE));
+            data.put("volume", reader.getField(YahooCsvReader.FIELD_VOLUME));
+            data.put("name", reader.getField(YahooCsvReader.FIELD_NAME));
             quotes.put(data);
         }
 
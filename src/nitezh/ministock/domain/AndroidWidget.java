@@ -43,17 +43,74 @@ import nitezh.ministock.Storage;
 
 public class AndroidWidget implements Widget {
 
+    private static final int MAX_STOCKS = 10;
+    private static final String VIEW_KEY = "widgetView";
+    private static final String SIZE_KEY = "widgetSize";
+
     private final Storage storage;
     private final Context context;
     private final int id;
     private int size;
 
+    // Parsed once, getters are called for every render and must not hit storage
+    private final String[] stocks = new String[MAX_STOCKS];
+    private int view;
+    private String backgroundStyle;
+    private boolean largeFont;
+    private boolean hideSuffix;
+    private boolean boldText;
+    private boolean colorsOnPrices;
+    private String footerVisibility;
+    private String footerColor;
+    private boolean shortTime;
+    private boolean percentChangeView;
+    private boolean dailyChangeView;
+    private boolean totalChangeView;
+    private boolean totalPercentView;
+    private boolean totalChangeAerView;
+    private boolean dailyPlChangeView;
+    private boolean dailyPlPercentView;
+    private boolean totalPlChangeView;
+    private boolean totalPlPercentView;
+    private boolean totalPlPercentAerView;
+
+    // Keys only this object writes, updating its own fields as it does
+    static boolean isUpdatedInPlace(String key) {
+        return VIEW_KEY.equals(key) || SIZE_KEY.equals(key);
+    }
+
     public AndroidWidget(Context context, int id) {
         this.context = context;
         this.id = id;
         this.storage = this.getStorage();
 
-        this.size = this._getSize(); // This is used a lot so don't get from storage each time
+        this.load();
+    }
+
+    private void load() {
+        this.size = this._getSize();
+        for (int i = 0; i < MAX_STOCKS; i++) {
+            this.stocks[i] = this.storage.getString("Stock" + (i + 1), "");
+        }
+        this.view = this.storage.getInt(VIEW_KEY, 0);
+        this.backgroundStyle = this.storage.getString("background", "transparent");
+        this.largeFont = this.storage.getBoolean("large_font", false);
+        this.hideSuffix = this.storage.getBoolean("hide_suffix", false);
+        this.boldText = this.storage.getString("text_style", "normal").equals("bold");
+        this.colorsOnPrices = this.storage.getBoolean("colours_on_prices", false);
+        this.footerVisibility = this.storage.getString("updated_display", "visible");
+        this.footerColor = this.storage.getString("updated_colour", "light");
+        this.shortTime = this.storage.getBoolean("short_time", false);
+        this.percentChangeView = this.storage.getBoolean("show_percent_change", false);
+        this.dailyChangeView = this.storage.getBoolean("show_absolute_change", false);
+        this.totalChangeView = this.storage.getBoolean("show_portfolio_abs", false);
+        this.totalPercentView = this.storage.getBoolean("show_portfolio_change", false);
+        this.totalChangeAerView = this.storage.getBoolean("show_portfolio_aer", false);
+        this.dailyPlChangeView = this.storage.getBoolean("show_profit_daily_abs", false);
+        this.dailyPlPercentView = this.storage.getBoolean("show_profit_daily_change", false);
+        this.totalPlChangeView = this.storage.getBoolean("show_profit_abs", false);
+        this.totalPlPercentView = this.storage.getBoolean("show_profit_change", false);
+        this.totalPlPercentAerView = this.storage.getBoolean("show_profit_aer", false);
     }
 
     @Override
@@ -89,6 +146,7 @@ public class AndroidWidget implements Widget {
             }
         }
         this.storage.apply();
+        this.load();
     }
 
     @Override
@@ -107,16 +165,19 @@ public class AndroidWidget implements Widget {
     @Override
     public void enablePercentChangeView() {
         this.storage.putBoolean("show_percent_change", true);
+        this.percentChangeView = true;
     }
 
     @Override
     public void enableDailyChangeView() {
         this.storage.putBoolean("show_absolute_change", true);
+        this.dailyChangeView = true;
     }
 
     @Override
     public void setStock1(String s) {
         this.storage.putString("Stock1", "^DJI");
+        this.stocks[0] = "^DJI";
     }
 
     @Override
@@ -142,7 +203,7 @@ public class AndroidWidget implements Widget {
     @Override
     public void setSize(int size) {
         this.size = size;
-        this.storage.putInt("widgetSize", size);
+        this.storage.putInt(SIZE_KEY, size);
     }
 
     @Override
@@ -151,23 +212,24 @@ public class AndroidWidget implements Widget {
     }
 
     public int _getSize() {
-        return this.storage.getInt("widgetSize", 0);
+        return this.storage.getInt(SIZE_KEY, 0);
     }
 
     @Override
     public String getStock(int i) {
-        return this.storage.getString("Stock" + (i + 1), "");
+        return i < MAX_STOCKS ? this.stocks[i] : "";
     }
 
     @Override
     public int getPreviousView() {
-        return this.storage.getInt("widgetView", 0);
+        return this.view;
     }
 
     @Override
     public void setView(int view) {
         if (view != this.getPreviousView()) {
-            this.storage.putInt("widgetView", view);
+            this.view = view;
+            this.storage.putInt(VIEW_KEY, view);
             this.save();
         }
     }
@@ -205,95 +267,95 @@ public class AndroidWidget implements Widget {
 
     @Override
     public String getBackgroundStyle() {
-        return this.storage.getString("background", "transparent");
+        return this.backgroundStyle;
     }
 
     @Override
     public boolean useLargeFont() {
-        return this.storage.getBoolean("large_font", false);
+        return this.largeFont;
     }
 
     @Override
     public boolean getHideSuffix() {
-        return this.storage.getBoolean("hide_suffix", false);
+        return this.hideSuffix;
     }
 
     @Override
     public boolean getTextStyle() {
-        return this.storage.getString("text_style", "normal").equals("bold");
+        return this.boldText;
     }
 
     @Override
     public boolean getColorsOnPrices() {
-        return this.storage.getBoolean("colours_on_prices", false);
+        return this.colorsOnPrices;
     }
 
     @Override
     public String getFooterVisibility() {
-        return this.storage.getString("updated_display", "visible");
+        return this.footerVisibility;
     }
 
     @Override
     public String getFooterColor() {
-        return this.storage.getString("updated_colour", "light");
+        return this.footerColor;
     }
 
     @Override
     public boolean showShortTime() {
-        return this.storage.getBoolean("short_time", false);
+        return this.shortTime;
     }
 
     @Override
     public boolean hasDailyChangeView() {
-        return this.storage.getBoolean("show_absolute_change", false);
+        return this.dailyChangeView;
     }
 
     @Override
     public boolean hasDailyPercentView() {
-        return this.storage.getBoolean("show_percent_change", false)
+        return this.percentChangeView
                 && (size == 0 || size == 2);
     }
 
     @Override
     public boolean hasTotalChangeView() {
-        return this.storage.getBoolean("show_portfolio_abs", false);
+        return this.totalChangeView;
     }
 
     @Override
     public boolean hasTotalPercentView() {
-        return this.storage.getBoolean("show_portfolio_change", false)
+        return this.totalPercentView
                 && (size == 0 || size == 2);
     }
 
     @Override
     public boolean hasTotalChangeAerView() {
-        return this.storage.getBoolean("show_portfolio_aer", false);
+        return this.totalChangeAerView;
     }
 
     @Override
     public boolean hasDailyPlChangeView() {
-        return this.storage.getBoolean("show_profit_daily_abs", false);
+        return this.dailyPlChangeView;
     }
 
     @Override
     public boolean hasDailyPlPercentView() {
-        return this.storage.getBoolean("show_profit_daily_change", false)
+        return this.dailyPlPercentView
                 && (size == 0 || size == 2);
     }
 
     @Override
     public boolean hasTotalPlChangeView() {
-        return this.storage.getBoolean("show_profit_abs", false);
+        return this.totalPlChangeView;
     }
 
     @Override
     public boolean hasTotalPlPercentView() {
-        return this.storage.getBoolean("show_profit_change", false)
+        return this.totalPlPercentView
                 && (size == 0 || size == 2);
     }
 
     @Override
     public boolean hasTotalPlPercentAerView() {
-        return this.storage.getBoolean("show_profit_aer", false);
+        return this.totalPlPercentAerView;
     }
 }
@@ -0,0 +1,134 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.domain;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import nitezh.ministock.R;
+
+
+// Widget ids and parsed widget configs kept in memory until their preferences change
+class AndroidWidgetRegistry {
+
+    private static final String IDS_KEY = "appWidgetIds";
+    private static AndroidWidgetRegistry mInstance;
+
+    private final Context context;
+    private final SharedPreferences appPreferences;
+    private final HashMap<Integer, AndroidWidget> widgets = new HashMap<>();
+    // SharedPreferences only holds weak references to its listeners
+    private final HashMap<Integer, SharedPreferences.OnSharedPreferenceChangeListener> widgetListeners =
+            new HashMap<>();
+    private final SharedPreferences.OnSharedPreferenceChangeListener idsListener;
+    private List<Integer> ids;
+
+    private AndroidWidgetRegistry(Context context) {
+        this.context = context;
+        this.appPreferences = context.getSharedPreferences(context.getString(R.string.prefs_name), 0);
+        this.idsListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
+            @Override
+            public void onSharedPreferenceChanged(SharedPreferences preferences, String key) {
+                if (IDS_KEY.equals(key)) {
+                    invalidateIds();
+                }
+            }
+        };
+        this.appPreferences.registerOnSharedPreferenceChangeListener(this.idsListener);
+    }
+
+    static synchronized AndroidWidgetRegistry getInstance(Context context) {
+        if (mInstance == null) {
+            mInstance = new AndroidWidgetRegistry(context.getApplicationContext());
+        }
+        return mInstance;
+    }
+
+    synchronized List<Integer> getIds() {
+        if (this.ids == null) {
+            List<Integer> ids = new ArrayList<>();
+            for (String rawId : this.appPreferences.getString(IDS_KEY, "").split(",")) {
+                if (!rawId.equals("")) {
+                    ids.add(Integer.parseInt(rawId));
+                }
+            }
+            this.ids = ids;
+        }
+        return new ArrayList<>(this.ids);
+    }
+
+    // Called after the ids were written, so readers see them before the listener fires
+    synchronized void setIds(List<Integer> ids) {
+        this.ids = new ArrayList<>(ids);
+    }
+
+    private synchronized void invalidateIds() {
+        this.ids = null;
+    }
+
+    synchronized AndroidWidget getWidget(final int id) {
+        AndroidWidget widget = this.widgets.get(id);
+        if (widget == null) {
+            widget = new AndroidWidget(this.context, id);
+            this.widgets.put(id, widget);
+        }
+        if (!this.widgetListeners.containsKey(id)) {
+            SharedPreferences.OnSharedPreferenceChangeListener listener =
+                    new SharedPreferences.OnSharedPreferenceChangeListener() {
+                        @Override
+                        public void onSharedPreferenceChanged(SharedPreferences preferences,
+                                                              String key) {
+                            // The cached widget already holds the view and size it saved
+                            if (!AndroidWidget.isUpdatedInPlace(key)) {
+                                invalidate(id);
+                            }
+                        }
+                    };
+            this.getWidgetPreferences(id).registerOnSharedPreferenceChangeListener(listener);
+            this.widgetListeners.put(id, listener);
+        }
+        return widget;
+    }
+
+    synchronized void invalidate(int id) {
+        this.widgets.remove(id);
+    }
+
+    synchronized void remove(int id) {
+        this.widgets.remove(id);
+        SharedPreferences.OnSharedPreferenceChangeListener listener = this.widgetListeners.remove(id);
+        if (listener != null) {
+            this.getWidgetPreferences(id).unregisterOnSharedPreferenceChangeListener(listener);
+        }
+    }
+
+    private SharedPreferences getWidgetPreferences(int id) {
+        return this.context.getSharedPreferences(this.context.getString(R.string.prefs_name) + id, 0);
+    }
+}
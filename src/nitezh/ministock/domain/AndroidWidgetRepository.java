@@ -38,29 +38,22 @@ import nitezh.ministock.Storage;
 
 public class AndroidWidgetRepository implements WidgetRepository {
 
-    private final Context context;
     private final Storage appStorage;
+    private final AndroidWidgetRegistry registry;
 
     public AndroidWidgetRepository(Context context) {
-        this.context = context;
         this.appStorage = PreferenceStorage.getInstance(context);
+        this.registry = AndroidWidgetRegistry.getInstance(context);
     }
 
     @Override
     public Widget getWidget(int id) {
-        return new AndroidWidget(this.context, id);
+        return this.registry.getWidget(id);
     }
 
     @Override
     public List<Integer> getIds() {
-        List<Integer> ids = new ArrayList<>();
-        for (String rawId : this.appStorage.getString("appWidgetIds", "").split(",")) {
-            if (!rawId.equals("")) {
-                ids.add(Integer.parseInt(rawId));
-            }
-        }
-
-        return ids;
+        return this.registry.getIds();
     }
 
     private void setIds(List<Integer> ids) {
@@ -70,6 +63,7 @@ public class AndroidWidgetRepository implements WidgetRepository {
         }
         this.appStorage.putString("appWidgetIds", TextUtils.join(",", rawIds));
         this.appStorage.apply();
+        this.registry.setIds(ids);
     }
 
     private void addWidgetId(int newId) {
@@ -110,6 +104,7 @@ public class AndroidWidgetRepository implements WidgetRepository {
         }
         ids.remove((Integer) oldId);  // Need to cast otherwise 'remove' uses location
         this.setIds(ids);
+        this.registry.remove(oldId);
     }
 
     @Override
@@ -119,15 +114,12 @@ public class AndroidWidgetRepository implements WidgetRepository {
 
     @Override
     public Set<String> getWidgetsStockSymbols() {
-        Storage widgetPreferences;
         Set<String> widgetStockSymbols = new HashSet<>();
         for (int appWidgetId : this.getIds()) {
-            widgetPreferences = this.getWidget(appWidgetId).getStorage();
-            if (widgetPreferences != null) {
-                for (int i = 1; i < 11; i++) {
-                    String stockSymbol = widgetPreferences.getString("Stock" + i, "");
-                    if (!stockSymbol.equals("")) widgetStockSymbols.add(stockSymbol);
-                }
+            Widget widget = this.getWidget(appWidgetId);
+            for (int i = 0; i < 10; i++) {
+                String stockSymbol = widget.getStock(i);
+                if (!stockSymbol.equals("")) widgetStockSymbols.add(stockSymbol);
             }
         }
 
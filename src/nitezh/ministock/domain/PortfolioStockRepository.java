@@ -29,11 +29,10 @@ import android.content.Context;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.text.NumberFormat;
+import java.io.File;
 import java.text.ParseException;
 import java.text.RuleBasedCollator;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -61,19 +60,39 @@ public class PortfolioStockRepository {
     private static boolean mDirtyPortfolioStockMap = true;
     private Storage mAppStorage;
 
-    public PortfolioStockRepository(Storage appStorage, Cache cache, WidgetRepository widgetRepository) {
+    // Only for reading and writing the portfolio itself, loads no quotes or widgets
+    public PortfolioStockRepository(Storage appStorage) {
         this.mAppStorage = appStorage;
+    }
 
-        this.widgetsStockSymbols = widgetRepository.getWidgetsStockSymbols();
-        this.portfolioStocksInfo = getPortfolioStocksInfo(widgetsStockSymbols);
-        this.stocksQuotes = getStocksQuotes(appStorage, cache, widgetRepository);
+    public PortfolioStockRepository(Storage appStorage, Cache cache, WidgetRepository widgetRepository) {
+        this(appStorage, cache, widgetRepository, null);
     }
 
-    private HashMap<String, StockQuote> getStocksQuotes(Storage appStorage, Cache cache, WidgetRepository widgetRepository) {
-        Set<String> symbolSet = portfolioStocksInfo.keySet();
+    public PortfolioStockRepository(Storage appStorage, Cache cache, WidgetRepository widgetRepository,
+                                    File snapshotDir) {
+        this(appStorage, cache, widgetRepository, snapshotDir, null);
+    }
+
+    // The snapshot only quotes widget symbols, holdings on no widget use the saved quotes
+    public PortfolioStockRepository(Storage appStorage, Cache cache, WidgetRepository widgetRepository,
+                                    File snapshotDir, QuoteSnapshot snapshot) {
+        this.mAppStorage = appStorage;
+
+        this.widgetsStockSymbols = snapshot != null
+                ? new HashSet<>(snapshot.getWidgetsStockSymbols())
+                : widgetRepository.getWidgetsStockSymbols();
+        this.portfolioStocksInfo = getPortfolioStocksInfo(widgetsStockSymbols);
 
-        return new StockQuoteRepository(appStorage, cache, widgetRepository)
-                .getQuotes(Arrays.asList(symbolSet.toArray(new String[symbolSet.size()])), false);
+        List<String> symbols = new ArrayList<>(portfolioStocksInfo.keySet());
+        if (snapshot != null) {
+            this.stocksQuotes = snapshot.getQuotesForSymbols(symbols);
+            symbols.removeAll(this.stocksQuotes.keySet());
+        }
+        if (!symbols.isEmpty()) {
+            this.stocksQuotes.putAll(new StockQuoteRepository(appStorage, cache, widgetRepository,
+                    snapshotDir).getQuotes(symbols, false));
+        }
     }
 
     private HashMap<String, PortfolioStock> getPortfolioStocksInfo(Set<String> symbols) {
@@ -88,8 +107,6 @@ public class PortfolioStockRepository {
     }
 
     public List<Map<String, String>> getDisplayInfo() {
-        NumberFormat numberFormat = NumberFormat.getInstance();
-
         List<Map<String, String>> info = new ArrayList<>();
         for (String symbol : this.getSortedSymbols()) {
             StockQuote quote = this.stocksQuotes.get(symbol);
@@ -99,7 +116,7 @@ public class PortfolioStockRepository {
             populateDisplayNames(quote, stock, itemInfo);
 
             // Get the current price if we have the data
-            String currentPrice = populateDisplayCurrentPrice(quote, itemInfo);
+            populateDisplayCurrentPrice(quote, itemInfo);
 
             if (hasInfoForStock(stock)) {
                 String buyPrice = stock.getPrice();
@@ -112,9 +129,9 @@ public class PortfolioStockRepository {
 
                 itemInfo.put("quantity", stock.getQuantity());
 
-                populateDisplayLastChange(numberFormat, symbol, quote, stock, itemInfo);
-                populateDisplayTotalChange(numberFormat, symbol, stock, itemInfo, currentPrice, buyPrice);
-                populateDisplayHoldingValue(numberFormat, symbol, stock, itemInfo, currentPrice);
+                populateDisplayLastChange(symbol, quote, stock, itemInfo);
+                populateDisplayTotalChange(symbol, quote, stock, itemInfo, buyPrice);
+                populateDisplayHoldingValue(symbol, quote, stock, itemInfo);
             }
             itemInfo.put("symbol", symbol);
             info.add(itemInfo);
@@ -137,27 +154,32 @@ public class PortfolioStockRepository {
         itemInfo.put("limitLow", limitLow);
     }
 
-    private void populateDisplayHoldingValue(NumberFormat numberFormat, String symbol, PortfolioStock stock, Map<String, String> itemInfo, String currentPrice) {
+    private void populateDisplayHoldingValue(String symbol, StockQuote quote, PortfolioStock stock, Map<String, String> itemInfo) {
         String holdingValue = "";
+        if (quote == null || !quote.hasPrice()) {
+            itemInfo.put("holdingValue", holdingValue);
+            return;
+        }
         try {
             Double holdingQuanta = NumberTools.parseDouble(stock.getQuantity());
-            Double holdingPrice = numberFormat.parse(currentPrice).doubleValue();
+            double holdingPrice = quote.getPriceValue();
             holdingValue = CurrencyTools.addCurrencyToSymbol(String.format("%.0f", (holdingQuanta * holdingPrice)), symbol);
         } catch (Exception ignored) {
         }
         itemInfo.put("holdingValue", holdingValue);
     }
 
-    private void populateDisplayLastChange(NumberFormat numberFormat, String symbol, StockQuote quote, PortfolioStock stock, Map<String, String> itemInfo) {
+    private void populateDisplayLastChange(String symbol, StockQuote quote, PortfolioStock stock, Map<String, String> itemInfo) {
         String lastChange = "";
         try {
             if (quote != null) {
                 lastChange = quote.getPercent();
-                try {
-                    Double change = numberFormat.parse(quote.getChange()).doubleValue();
-                    Double totalChange = NumberTools.parseDouble(stock.getQuantity()) * change;
-                    lastChange += " / " + CurrencyTools.addCurrencyToSymbol(String.format("%.0f", (totalChange)), symbol);
-                } catch (Exception ignored) {
+                if (quote.hasChange()) {
+                    try {
+                        Double totalChange = NumberTools.parseDouble(stock.getQuantity()) * quote.getChangeValue();
+                        lastChange += " / " + CurrencyTools.addCurrencyToSymbol(String.format("%.0f", (totalChange)), symbol);
+                    } catch (Exception ignored) {
+                    }
                 }
             }
         } catch (Exception ignored) {
@@ -165,11 +187,15 @@ public class PortfolioStockRepository {
         itemInfo.put("lastChange", lastChange);
     }
 
-    private void populateDisplayTotalChange(NumberFormat numberFormat, String symbol, PortfolioStock stock, Map<String, String> itemInfo, String currentPrice, String buyPrice) {
+    private void populateDisplayTotalChange(String symbol, StockQuote quote, PortfolioStock stock, Map<String, String> itemInfo, String buyPrice) {
         // Calculate total change, including percentage
         String totalChange = "";
+        if (quote == null || !quote.hasPrice()) {
+            itemInfo.put("totalChange", totalChange);
+            return;
+        }
         try {
-            Double price = numberFormat.parse(currentPrice).doubleValue();
+            double price = quote.getPriceValue();
             Double buy = Double.parseDouble(buyPrice);
             Double totalPercentChange = price - buy;
             totalChange = String.format("%.0f", 100 * totalPercentChange / buy) + "%";
@@ -185,13 +211,11 @@ public class PortfolioStockRepository {
         itemInfo.put("totalChange", totalChange);
     }
 
-    private String populateDisplayCurrentPrice(StockQuote quote, Map<String, String> itemInfo) {
+    private void populateDisplayCurrentPrice(StockQuote quote, Map<String, String> itemInfo) {
         String currentPrice = "";
         if (quote != null)
             currentPrice = quote.getPrice();
         itemInfo.put("currentPrice", currentPrice);
-
-        return currentPrice;
     }
 
     private void populateDisplayNames(StockQuote quote, PortfolioStock stock, Map<String, String> itemInfo) {
@@ -229,6 +253,7 @@ public class PortfolioStockRepository {
         mDirtyPortfolioStockMap = true;
         String rawJson = UserData.readInternalStorage(context, PORTFOLIO_JSON);
         this.mAppStorage.putString(PORTFOLIO_JSON, rawJson).apply();
+        QuoteSnapshot.replacePortfolio(this.getStocks());
         DialogTools.showSimpleDialog(context, "PortfolioActivity restored",
                 "Your portfolio settings have been restored from internal mAppStorage.");
     }
@@ -301,6 +326,7 @@ public class PortfolioStockRepository {
         this.mAppStorage.putString(PORTFOLIO_JSON, json.toString());
         this.mAppStorage.apply();
         mDirtyPortfolioStockMap = true;
+        QuoteSnapshot.replacePortfolio(this.getStocks());
     }
 
     public HashMap<String, PortfolioStock> getStocksForSymbols(List<String> symbols) {
@@ -0,0 +1,239 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import nitezh.ministock.Storage;
+
+
+// Quotes, portfolio and widget symbols of one refresh, shared read-only by everything that renders
+public class QuoteSnapshot {
+
+    private static final AtomicReference<QuoteSnapshot> mCurrent = new AtomicReference<>();
+
+    // Quotes and positions are indexed by SymbolTable id, widget slots hold ids
+    private final StockQuote[] quotes;
+    private final String timeStamp;
+    private final PortfolioStock[] portfolioStocks;
+    private final Map<Integer, int[]> widgetSlots;
+    private final Set<String> widgetsStockSymbols;
+
+    public QuoteSnapshot(Map<String, StockQuote> quotes, String timeStamp,
+                         Map<String, PortfolioStock> portfolioStocks,
+                         Map<Integer, List<String>> widgetSymbols) {
+        SymbolTable symbolTable = SymbolTable.getInstance();
+        HashMap<Integer, int[]> slots = new HashMap<>();
+        Set<String> allSymbols = new HashSet<>();
+        for (Map.Entry<Integer, List<String>> entry : widgetSymbols.entrySet()) {
+            List<String> symbols = entry.getValue();
+            int[] ids = new int[symbols.size()];
+            for (int i = 0; i < ids.length; i++) {
+                String symbol = symbols.get(i);
+                ids[i] = symbol.equals("") ? SymbolTable.NO_ID : symbolTable.intern(symbol);
+            }
+            slots.put(entry.getKey(), ids);
+            allSymbols.addAll(symbols);
+        }
+        allSymbols.remove("");
+        this.widgetSlots = Collections.unmodifiableMap(slots);
+        this.widgetsStockSymbols = Collections.unmodifiableSet(allSymbols);
+
+        HashMap<Integer, StockQuote> quotesById = new HashMap<>();
+        for (Map.Entry<String, StockQuote> entry : quotes.entrySet()) {
+            quotesById.put(symbolTable.intern(entry.getKey()), entry.getValue());
+        }
+        this.quotes = new StockQuote[symbolTable.size()];
+        for (Map.Entry<Integer, StockQuote> entry : quotesById.entrySet()) {
+            this.quotes[entry.getKey()] = entry.getValue();
+        }
+        this.timeStamp = timeStamp;
+        this.portfolioStocks = toArray(portfolioStocks);
+    }
+
+    private QuoteSnapshot(QuoteSnapshot source, Map<String, PortfolioStock> portfolioStocks) {
+        this.quotes = source.quotes;
+        this.timeStamp = source.timeStamp;
+        this.widgetSlots = source.widgetSlots;
+        this.widgetsStockSymbols = source.widgetsStockSymbols;
+        this.portfolioStocks = toArray(portfolioStocks);
+    }
+
+    private static PortfolioStock[] toArray(Map<String, PortfolioStock> portfolioStocks) {
+        SymbolTable symbolTable = SymbolTable.getInstance();
+        HashMap<Integer, PortfolioStock> stocksById = new HashMap<>();
+        for (Map.Entry<String, PortfolioStock> entry : portfolioStocks.entrySet()) {
+            // The repository map may hold null placeholders for symbols without details
+            if (entry.getValue() != null) {
+                stocksById.put(symbolTable.intern(entry.getKey()), entry.getValue());
+            }
+        }
+        PortfolioStock[] stocks = new PortfolioStock[symbolTable.size()];
+        for (Map.Entry<Integer, PortfolioStock> entry : stocksById.entrySet()) {
+            stocks[entry.getKey()] = entry.getValue();
+        }
+        return stocks;
+    }
+
+    // Loads the portfolio once, quotes and widget symbols are supplied by the caller
+    public static QuoteSnapshot build(Storage storage, Map<String, StockQuote> quotes,
+                                      String timeStamp, Map<Integer, List<String>> widgetSymbols) {
+        return new QuoteSnapshot(quotes, timeStamp,
+                new PortfolioStockRepository(storage).getStocks(), widgetSymbols);
+    }
+
+    public static QuoteSnapshot getCurrent() {
+        return mCurrent.get();
+    }
+
+    public static void publish(QuoteSnapshot snapshot) {
+        mCurrent.set(snapshot);
+    }
+
+    // Keeps the published snapshot in step with portfolio edits made between refreshes
+    public static void replacePortfolio(Map<String, PortfolioStock> portfolioStocks) {
+        while (true) {
+            QuoteSnapshot current = mCurrent.get();
+            if (current == null
+                    || mCurrent.compareAndSet(current, new QuoteSnapshot(current, portfolioStocks))) {
+                return;
+            }
+        }
+    }
+
+    public Map<String, StockQuote> getQuotes() {
+        SymbolTable symbolTable = SymbolTable.getInstance();
+        HashMap<String, StockQuote> quotes = new HashMap<>();
+        for (int id = 0; id < this.quotes.length; id++) {
+            if (this.quotes[id] != null) {
+                quotes.put(symbolTable.getSymbol(id), this.quotes[id]);
+            }
+        }
+        return Collections.unmodifiableMap(quotes);
+    }
+
+    public StockQuote getQuote(int symbolId) {
+        return symbolId >= 0 && symbolId < this.quotes.length ? this.quotes[symbolId] : null;
+    }
+
+    public HashMap<String, StockQuote> getQuotesForSymbols(List<String> symbols) {
+        SymbolTable symbolTable = SymbolTable.getInstance();
+        HashMap<String, StockQuote> quotesForSymbols = new HashMap<>();
+        for (String symbol : symbols) {
+            StockQuote quote = this.getQuote(symbolTable.getId(symbol));
+            if (quote != null) {
+                quotesForSymbols.put(symbol, quote);
+            }
+        }
+        return quotesForSymbols;
+    }
+
+    // Row-aligned with symbolIds, null where there is no quote
+    public StockQuote[] getQuotes(int[] symbolIds) {
+        StockQuote[] quotesForIds = new StockQuote[symbolIds.length];
+        for (int i = 0; i < symbolIds.length; i++) {
+            quotesForIds[i] = this.getQuote(symbolIds[i]);
+        }
+        return quotesForIds;
+    }
+
+    public String getTimeStamp() {
+        return this.timeStamp;
+    }
+
+    public Map<String, PortfolioStock> getPortfolioStocks() {
+        SymbolTable symbolTable = SymbolTable.getInstance();
+        HashMap<String, PortfolioStock> stocks = new HashMap<>();
+        for (int id = 0; id < this.portfolioStocks.length; id++) {
+            if (this.portfolioStocks[id] != null) {
+                stocks.put(symbolTable.getSymbol(id), this.portfolioStocks[id]);
+            }
+        }
+        return Collections.unmodifiableMap(stocks);
+    }
+
+    public PortfolioStock getPortfolioStock(int symbolId) {
+        return symbolId >= 0 && symbolId < this.portfolioStocks.length
+                ? this.portfolioStocks[symbolId] : null;
+    }
+
+    // Same selection as PortfolioStockRepository.getStocksForSymbols
+    public HashMap<String, PortfolioStock> getPortfolioStocksForSymbols(List<String> symbols) {
+        SymbolTable symbolTable = SymbolTable.getInstance();
+        HashMap<String, PortfolioStock> stocksForSymbols = new HashMap<>();
+        for (String symbol : symbols) {
+            PortfolioStock stock = this.getPortfolioStock(symbolTable.getId(symbol));
+            if (stock != null && !stock.isEmpty()) {
+                stocksForSymbols.put(symbol, stock);
+            }
+        }
+        return stocksForSymbols;
+    }
+
+    // Row-aligned with symbolIds, same selection as getPortfolioStocksForSymbols
+    public PortfolioStock[] getPortfolioStocks(int[] symbolIds) {
+        PortfolioStock[] stocksForIds = new PortfolioStock[symbolIds.length];
+        for (int i = 0; i < symbolIds.length; i++) {
+            PortfolioStock stock = this.getPortfolioStock(symbolIds[i]);
+            if (stock != null && !stock.isEmpty()) {
+                stocksForIds[i] = stock;
+            }
+        }
+        return stocksForIds;
+    }
+
+    public Set<Integer> getWidgetIds() {
+        return this.widgetSlots.keySet();
+    }
+
+    // Ids resolved when the snapshot was built, shared so callers must not modify them
+    public int[] getWidgetSymbolIds(int appWidgetId) {
+        return this.widgetSlots.get(appWidgetId);
+    }
+
+    public List<String> getWidgetSymbols(int appWidgetId) {
+        int[] ids = this.widgetSlots.get(appWidgetId);
+        if (ids == null) {
+            return null;
+        }
+        SymbolTable symbolTable = SymbolTable.getInstance();
+        List<String> symbols = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            symbols.add(id != SymbolTable.NO_ID ? symbolTable.getSymbol(id) : "");
+        }
+        return symbols;
+    }
+
+    public Set<String> getWidgetsStockSymbols() {
+        return this.widgetsStockSymbols;
+    }
+}
@@ -24,18 +24,67 @@
 
 package nitezh.ministock.domain;
 
+import nitezh.ministock.utils.DecimalFormatter;
 import nitezh.ministock.utils.NumberTools;
 
 
 public class StockQuote {
 
+    // Bits describing which numeric values are present, used by the binary snapshot
+    public static final int FLAG_PRICE = 1;
+    public static final int FLAG_CHANGE = 2;
+    public static final int FLAG_PERCENT = 4;
+    public static final int FLAG_VOLUME = 8;
+    public static final int FLAG_PRICE_SMALL = 16;
+    public static final int FLAG_PRICE_UNPARSED = 32;
+
     private String symbol;
+    private String exchange;
+    private String name;
+    private final boolean isFx;
+
+    // Numeric values, only valid when the matching has* flag is set
+    private double priceValue;
+    private double changeValue;
+    private double percentValue;
+    private double volumeValue;
+    private boolean hasPrice;
+    private boolean hasChange;
+    private boolean hasPercent;
+    private boolean hasVolume;
+    private boolean isPriceSmall;
+    private boolean isPriceUnparsed;
+
+    // Display strings, formatted on first use
     private String price;
     private String change;
     private String percent;
-    private String exchange;
     private String volume;
-    private String name;
+
+    // When the provider produced this quote, 0 when not known
+    private long time;
+
+    private StockQuote(String symbol, String exchange, String volume, String name, int flags,
+                       double price, double change, double percent, double volumeValue) {
+        this.symbol = symbol;
+        this.exchange = exchange;
+        this.volume = volume;
+        this.name = name;
+        this.isFx = symbol.contains("=");
+        this.hasPrice = (flags & FLAG_PRICE) != 0;
+        this.hasChange = (flags & FLAG_CHANGE) != 0;
+        this.hasPercent = (flags & FLAG_PERCENT) != 0;
+        this.hasVolume = (flags & FLAG_VOLUME) != 0;
+        this.isPriceSmall = (flags & FLAG_PRICE_SMALL) != 0;
+        this.isPriceUnparsed = (flags & FLAG_PRICE_UNPARSED) != 0;
+        if (this.isPriceUnparsed) {
+            this.price = "0.00";
+        }
+        this.priceValue = price;
+        this.changeValue = change;
+        this.percentValue = percent;
+        this.volumeValue = volumeValue;
+    }
 
     public StockQuote(String symbol, String price, String change, String percent, String exchange,
                       String volume, String name) {
@@ -48,30 +97,32 @@ public class StockQuote {
         this.exchange = exchange;
         this.volume = volume;
         this.name = name;
+        try {
+            this.volumeValue = Double.parseDouble(volume);
+            this.hasVolume = true;
+        } catch (Exception ignored) {
+        }
 
         // Get additional FX data if applicable
         Double p0 = null;
-        boolean isFx = symbol.contains("=");
-        if (isFx) {
+        this.isFx = symbol.contains("=");
+        if (this.isFx) {
             try {
                 p0 = Double.parseDouble(previousPrice);
             } catch (Exception ignored) {
             }
         }
 
-        // Set stock prices to 2 decimal places
         Double p = null;
         if (!price.equals("0.00")) {
             try {
                 p = Double.parseDouble(price);
-                if (isFx) {
-                    this.price = NumberTools.getTrimmedDouble2(p, 6);
-                } else {
-                    this.price = NumberTools.getTrimmedDouble(p, 6, 4);
-                }
+                this.priceValue = p;
             } catch (Exception e) {
                 this.price = "0.00";
+                this.isPriceUnparsed = true;
             }
+            this.hasPrice = true;
 
             // Note that if the change or percent == "N/A" set to 0
             if (!this.isNonEmptyNumber(price) && p0 == null) {
@@ -82,7 +133,6 @@ public class StockQuote {
             }
         }
 
-        // Changes are only set to 5 significant figures
         Double c = null;
         if (this.isNonEmptyNumber(change)) {
             c = Double.parseDouble(change);
@@ -90,14 +140,11 @@ public class StockQuote {
             c = p - p0;
         }
         if (c != null) {
-            if (p != null && (p < 10 || isFx)) {
-                this.change = NumberTools.getTrimmedDouble(c, 5, 3);
-            } else {
-                this.change = NumberTools.getTrimmedDouble(c, 5);
-            }
+            this.changeValue = c;
+            this.hasChange = true;
+            this.isPriceSmall = p != null && (p < 10 || this.isFx);
         }
 
-        // Percentage changes are only set to one decimal place
         Double pc = null;
         if (this.isNonEmptyNumber(percent)) {
             pc = Double.parseDouble(percent.replace("%", ""));
@@ -107,10 +154,28 @@ public class StockQuote {
             }
         }
         if (pc != null) {
-            this.percent = String.format("%.1f", pc) + "%";
+            this.percentValue = pc;
+            this.hasPercent = true;
         }
     }
 
+    // Rebuilds a quote from already parsed values, without any text parsing
+    public static StockQuote fromValues(String symbol, String exchange, String volume, String name,
+                                        int flags, double price, double change, double percent,
+                                        double volumeValue) {
+        return new StockQuote(symbol, exchange, volume, name, flags, price, change, percent,
+                volumeValue);
+    }
+
+    public int getFlags() {
+        return (this.hasPrice ? FLAG_PRICE : 0)
+                | (this.hasChange ? FLAG_CHANGE : 0)
+                | (this.hasPercent ? FLAG_PERCENT : 0)
+                | (this.hasVolume ? FLAG_VOLUME : 0)
+                | (this.isPriceSmall ? FLAG_PRICE_SMALL : 0)
+                | (this.isPriceUnparsed ? FLAG_PRICE_UNPARSED : 0);
+    }
+
     private boolean isNonEmptyNumber(String value) {
         return !value.equals("N/A")
                 && !value.equals("")
@@ -125,15 +190,39 @@ public class StockQuote {
         this.symbol = symbol;
     }
 
+    public long getTime() {
+        return time;
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    // Stock prices are shown to 2 decimal places
     public String getPrice() {
+        if (this.price == null && this.hasPrice) {
+            this.price = this.isFx
+                    ? NumberTools.getTrimmedDouble2(this.priceValue, 6)
+                    : NumberTools.getTrimmedDouble(this.priceValue, 6, 4);
+        }
         return price;
     }
 
+    // Changes are only shown to 5 significant figures
     public String getChange() {
+        if (this.change == null && this.hasChange) {
+            this.change = this.isPriceSmall
+                    ? NumberTools.getTrimmedDouble(this.changeValue, 5, 3)
+                    : NumberTools.getTrimmedDouble(this.changeValue, 5);
+        }
         return change;
     }
 
+    // Percentage changes are only shown to one decimal place
     public String getPercent() {
+        if (this.percent == null && this.hasPercent) {
+            this.percent = DecimalFormatter.format(this.percentValue, 1) + "%";
+        }
         return percent;
     }
 
@@ -148,4 +237,36 @@ public class StockQuote {
     public String getName() {
         return name;
     }
+
+    public boolean hasPrice() {
+        return hasPrice;
+    }
+
+    public boolean hasChange() {
+        return hasChange;
+    }
+
+    public boolean hasPercent() {
+        return hasPercent;
+    }
+
+    public boolean hasVolume() {
+        return hasVolume;
+    }
+
+    public double getPriceValue() {
+        return priceValue;
+    }
+
+    public double getChangeValue() {
+        return changeValue;
+    }
+
+    public double getPercentValue() {
+        return percentValue;
+    }
+
+    public double getVolumeValue() {
+        return volumeValue;
+    }
 }
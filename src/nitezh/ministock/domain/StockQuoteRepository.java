@@ -24,6 +24,7 @@
 
 package nitezh.ministock.domain;
 
+import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -31,72 +32,201 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import nitezh.ministock.utils.Cache;
 import nitezh.ministock.Storage;
 import nitezh.ministock.dataaccess.FxChangeRepository;
 import nitezh.ministock.dataaccess.GoogleStockQuoteRepository;
+import nitezh.ministock.dataaccess.DeltaQuoteStore;
+import nitezh.ministock.dataaccess.QuoteHistoryStore;
 import nitezh.ministock.dataaccess.YahooStockQuoteRepository;
+import nitezh.ministock.utils.DaemonThreadFactory;
+import nitezh.ministock.utils.SymbolIndex;
 
 
 public class StockQuoteRepository {
 
     public static final List<String> GOOGLE_SYMBOLS = Arrays.asList(".DJI", ".IXIC");
 
+    // Overall time allowed for all providers, late providers fall back to saved quotes
+    public static final long LIVE_QUOTES_DEADLINE = 20000;
+    private static final ExecutorService mProviderExecutor = Executors.newCachedThreadPool(
+            new DaemonThreadFactory("QuoteProvider"));
+
     private static String mTimeStamp;
+    private static DeltaQuoteStore mQuoteStore;
+    private static File mQuoteStoreDir;
+    private static QuoteHistoryStore mHistoryStore;
+    private static File mHistoryStoreDir;
     private static HashMap<String, StockQuote> mCachedQuotes;
+    private final FxChangeRepository fxChangeRepository;
     private final YahooStockQuoteRepository yahooRepository;
     private final GoogleStockQuoteRepository googleRepository;
 
     private final Storage appStorage;
     private final Cache appCache;
     private final WidgetRepository widgetRepository;
+    private final File snapshotDir;
+    private final DeltaQuoteStore quoteStore;
+    private final QuoteHistoryStore historyStore;
+    private final long liveQuotesDeadline;
+    private int lastSavedRecordCount = 0;
 
     public StockQuoteRepository(Storage appStorage, Cache appCache, WidgetRepository widgetRepository) {
-        this.yahooRepository = new YahooStockQuoteRepository(new FxChangeRepository());
+        this(appStorage, appCache, widgetRepository, null);
+    }
+
+    // Quotes are saved to a binary snapshot in snapshotDir, or to preferences when it is null
+    public StockQuoteRepository(Storage appStorage, Cache appCache, WidgetRepository widgetRepository,
+                                File snapshotDir) {
+        this(appStorage, appCache, widgetRepository, snapshotDir, LIVE_QUOTES_DEADLINE);
+    }
+
+    public StockQuoteRepository(Storage appStorage, Cache appCache, WidgetRepository widgetRepository,
+                                File snapshotDir, long liveQuotesDeadline) {
+        this.snapshotDir = snapshotDir;
+        this.liveQuotesDeadline = liveQuotesDeadline;
+        this.quoteStore = snapshotDir != null ? getQuoteStore(snapshotDir) : null;
+        this.historyStore = snapshotDir != null ? getHistoryStore(snapshotDir) : null;
+        this.fxChangeRepository = new FxChangeRepository();
+        this.yahooRepository = new YahooStockQuoteRepository(this.fxChangeRepository);
         this.googleRepository = new GoogleStockQuoteRepository();
         this.appStorage = appStorage;
         this.appCache = appCache;
         this.widgetRepository = widgetRepository;
     }
 
+    // The store keeps the last saved quotes as its baseline, so share it across instances
+    private static synchronized DeltaQuoteStore getQuoteStore(File dir) {
+        if (mQuoteStore == null || !dir.equals(mQuoteStoreDir)) {
+            mQuoteStore = new DeltaQuoteStore(dir);
+            mQuoteStoreDir = dir;
+            // Quotes loaded from another directory are not this store's saved quotes
+            mCachedQuotes = null;
+        }
+        return mQuoteStore;
+    }
+
+    // The history file stays mapped for the life of the process
+    private static synchronized QuoteHistoryStore getHistoryStore(File dir) {
+        if (mHistoryStore == null || !dir.equals(mHistoryStoreDir)) {
+            if (mHistoryStore != null) {
+                mHistoryStore.close();
+            }
+            mHistoryStore = new QuoteHistoryStore(dir);
+            mHistoryStoreDir = dir;
+        }
+        return mHistoryStore;
+    }
+
+    // Prices kept from earlier refreshes, null when quotes are not saved to files
+    public QuoteHistoryStore getHistoryStore() {
+        return this.historyStore;
+    }
+
     public HashMap<String, StockQuote> getLiveQuotes(List<String> symbols) {
         HashMap<String, StockQuote> allQuotes = new HashMap<>();
 
         symbols = this.convertRequestSymbols(symbols);
-        List<String> yahooSymbols = new ArrayList<>(symbols);
-        List<String> googleSymbols = new ArrayList<>(symbols);
+        final List<String> yahooSymbols = new ArrayList<>(symbols);
+        final List<String> googleSymbols = new ArrayList<>(symbols);
         yahooSymbols.removeAll(GOOGLE_SYMBOLS);
         googleSymbols.retainAll(GOOGLE_SYMBOLS);
 
-        HashMap<String, StockQuote> yahooQuotes = this.yahooRepository.getQuotes(this.appCache, yahooSymbols);
-        HashMap<String, StockQuote> googleQuotes = this.googleRepository.getQuotes(this.appCache, googleSymbols);
+        Future<HashMap<String, StockQuote>> yahooFuture = null;
+        if (!yahooSymbols.isEmpty()) {
+            yahooFuture = mProviderExecutor.submit(new Callable<HashMap<String, StockQuote>>() {
+                @Override
+                public HashMap<String, StockQuote> call() throws Exception {
+                    return yahooRepository.getQuotes(appCache, yahooSymbols);
+                }
+            });
+        }
+        Future<HashMap<String, StockQuote>> googleFuture = null;
+        if (!googleSymbols.isEmpty()) {
+            googleFuture = mProviderExecutor.submit(new Callable<HashMap<String, StockQuote>>() {
+                @Override
+                public HashMap<String, StockQuote> call() throws Exception {
+                    return googleRepository.getQuotes(appCache, googleSymbols);
+                }
+            });
+        }
+
+        long deadline = System.currentTimeMillis() + this.liveQuotesDeadline;
+        HashMap<String, StockQuote> yahooQuotes = this.getBeforeDeadline(yahooFuture, deadline);
+        HashMap<String, StockQuote> googleQuotes = this.getBeforeDeadline(googleFuture, deadline);
         if (yahooQuotes != null) allQuotes.putAll(yahooQuotes);
         if (googleQuotes != null) allQuotes.putAll(googleQuotes);
         allQuotes = this.convertResponseQuotes(allQuotes);
 
+        // Nothing live arrived, so let the caller fall back to the saved quotes and time stamp
+        if (yahooQuotes == null && googleQuotes == null) {
+            return allQuotes;
+        }
+
+        // Use the last saved quotes for any symbol a provider failed to return in time
+        this.addSavedQuotes(allQuotes, this.convertResponseSymbols(symbols));
+
         return allQuotes;
     }
 
+    private HashMap<String, StockQuote> getBeforeDeadline(
+            Future<HashMap<String, StockQuote>> future, long deadline) {
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get(Math.max(deadline - System.currentTimeMillis(), 0),
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ignored) {
+        }
+        return null;
+    }
+
+    private void addSavedQuotes(HashMap<String, StockQuote> quotes, List<String> symbols) {
+        HashMap<String, StockQuote> savedQuotes = this.loadQuotes();
+        for (String symbol : symbols) {
+            StockQuote quote = savedQuotes.get(symbol);
+            if (quote != null && !quotes.containsKey(symbol)) {
+                quotes.put(symbol, quote);
+            }
+        }
+    }
+
     private HashMap<String, StockQuote> convertResponseQuotes(HashMap<String, StockQuote> quotes) {
+        SymbolTable symbolTable = SymbolTable.getInstance();
         HashMap<String, StockQuote> newQuotes = new HashMap<>();
-        for (String symbol : quotes.keySet()) {
-            StockQuote quote = quotes.get(symbol);
-            String newSymbol = quote.getSymbol()
-                    .replace(".DJI", "^DJI")
-                    .replace(".IXIC", "^IXIC");
+        for (StockQuote quote : quotes.values()) {
+            String newSymbol = symbolTable.getCanonicalSymbol(quote.getSymbol());
             quote.setSymbol(newSymbol);
             newQuotes.put(newSymbol, quote);
         }
         return newQuotes;
     }
 
+    private List<String> convertResponseSymbols(List<String> symbols) {
+        SymbolTable symbolTable = SymbolTable.getInstance();
+        List<String> newSymbols = new ArrayList<>();
+        for (String symbol : symbols) {
+            newSymbols.add(symbolTable.getCanonicalSymbol(symbol));
+        }
+        return newSymbols;
+    }
+
     private List<String> convertRequestSymbols(List<String> symbols) {
+        SymbolTable symbolTable = SymbolTable.getInstance();
         List<String> newSymbols = new ArrayList<>();
         for (String symbol : symbols) {
-            newSymbols.add(symbol
-                    .replace("^DJI", ".DJI")
-                    .replace("^IXIC", ".IXIC"));
+            newSymbols.add(symbolTable.getProviderSymbol(symbol));
         }
         return newSymbols;
     }
@@ -108,30 +238,54 @@ public class StockQuoteRepository {
             Set<String> widgetSymbols = this.widgetRepository.getWidgetsStockSymbols();
             widgetSymbols.add("^DJI");
             widgetSymbols.addAll(new PortfolioStockRepository(
-                    this.appStorage, this.appCache, this.widgetRepository).getStocks().keySet());
+                    this.appStorage, this.appCache, this.widgetRepository, this.snapshotDir)
+                    .getStocks().keySet());
             quotes = getLiveQuotes(new ArrayList<>(widgetSymbols));
         }
 
         if (quotes.isEmpty()) {
             quotes = loadQuotes();
         } else {
-            SimpleDateFormat format = new SimpleDateFormat("dd MMM HH:mm");
-            String timeStamp = format.format(new Date()).toUpperCase();
-            saveQuotes(quotes, timeStamp);
+            saveQuotes(quotes, getDataTime(quotes, System.currentTimeMillis()));
         }
 
         // Returns only quotes requested
-        @SuppressWarnings("unchecked") HashMap<String, StockQuote> filteredQuotes =
-                (HashMap<String, StockQuote>) quotes.clone();
-        filteredQuotes.keySet().retainAll(symbols);
+        HashMap<String, StockQuote> filteredQuotes = new HashMap<>();
+        for (String symbol : symbols) {
+            StockQuote quote = quotes.get(symbol);
+            if (quote != null) {
+                filteredQuotes.put(symbol, quote);
+            }
+        }
         return filteredQuotes;
     }
 
+    // Stamp the quotes with their oldest provider time, so stale data never looks fresh
+    private static long getDataTime(HashMap<String, StockQuote> quotes, long now) {
+        long time = now;
+        for (StockQuote quote : quotes.values()) {
+            if (quote.getTime() > 0) {
+                time = Math.min(time, quote.getTime());
+            }
+        }
+        return time;
+    }
+
     private HashMap<String, StockQuote> loadQuotes() {
         if (mCachedQuotes != null) {
             return mCachedQuotes;
         }
 
+        if (this.quoteStore != null) {
+            HashMap<String, StockQuote> quotes = this.quoteStore.read();
+            if (quotes != null) {
+                mCachedQuotes = quotes;
+                mTimeStamp = formatTimeStamp(this.quoteStore.getTime());
+                addToSymbolIndex(quotes);
+                return quotes;
+            }
+        }
+
         HashMap<String, StockQuote> quotes = new HashMap<>();
         String savedQuotes = this.appStorage.getString("savedQuotes", "");
         String timeStamp = this.appStorage.getString("savedQuotesTime", "");
@@ -158,13 +312,47 @@ public class StockQuoteRepository {
         return quotes;
     }
 
+    // Quote records persisted by the last save through this repository
+    public int getLastSavedRecordCount() {
+        return this.lastSavedRecordCount;
+    }
+
     public String getTimeStamp() {
         return mTimeStamp;
     }
 
-    private void saveQuotes(HashMap<String, StockQuote> quotes, String timeStamp) {
+    private static String formatTimeStamp(long time) {
+        SimpleDateFormat format = new SimpleDateFormat("dd MMM HH:mm");
+        return format.format(new Date(time)).toUpperCase();
+    }
+
+    // Every quoted symbol becomes searchable offline
+    private static void addToSymbolIndex(HashMap<String, StockQuote> quotes) {
+        SymbolIndex symbolIndex = SymbolIndex.getInstance();
+        for (StockQuote quote : quotes.values()) {
+            symbolIndex.add(quote.getSymbol(), quote.getName());
+        }
+    }
+
+    private void saveQuotes(HashMap<String, StockQuote> quotes, long time) {
+        String timeStamp = formatTimeStamp(time);
         mCachedQuotes = quotes;
         mTimeStamp = timeStamp;
+        addToSymbolIndex(quotes);
+        if (this.historyStore != null) {
+            this.historyStore.append(quotes);
+        }
+
+        this.lastSavedRecordCount = this.quoteStore != null ? this.quoteStore.write(quotes, time) : -1;
+        if (this.lastSavedRecordCount >= 0) {
+            // Drop the old text copy so it is never read in place of the snapshot
+            if (!this.appStorage.getString("savedQuotes", "").equals("")) {
+                this.appStorage.remove("savedQuotes");
+                this.appStorage.remove("savedQuotesTime");
+                this.appStorage.apply();
+            }
+            return;
+        }
 
         StringBuilder savedQuotes = new StringBuilder();
         for (String symbol : quotes.keySet()) {
@@ -178,6 +366,7 @@ public class StockQuoteRepository {
                     quote.getVolume() != null ? quote.getVolume() : "",
                     quote.getName() != null ? quote.getName() : ""));
         }
+        this.lastSavedRecordCount = quotes.size();
         this.appStorage.putString("savedQuotes", savedQuotes.toString().trim());
         this.appStorage.putString("savedQuotesTime", timeStamp);
         this.appStorage.apply();
@@ -0,0 +1,109 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.domain;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+
+// Assigns every symbol a dense int id once, so lookups can index arrays instead of hashing strings
+public class SymbolTable {
+
+    public static final int NO_ID = -1;
+    private static final SymbolTable mInstance = new SymbolTable();
+
+    static {
+        // Google names the indices it serves differently from the rest of the app
+        mInstance.addAlias("^DJI", ".DJI");
+        mInstance.addAlias("^IXIC", ".IXIC");
+    }
+
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    private String[] symbols = new String[64];
+    private int[] canonicalIds = new int[64];
+    private int[] providerIds = new int[64];
+    private int count = 0;
+
+    public static SymbolTable getInstance() {
+        return mInstance;
+    }
+
+    public synchronized int intern(String symbol) {
+        Integer id = this.ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        if (this.count == this.symbols.length) {
+            int capacity = this.count * 2;
+            this.symbols = Arrays.copyOf(this.symbols, capacity);
+            this.canonicalIds = Arrays.copyOf(this.canonicalIds, capacity);
+            this.providerIds = Arrays.copyOf(this.providerIds, capacity);
+        }
+        int newId = this.count++;
+        this.symbols[newId] = symbol;
+        this.canonicalIds[newId] = newId;
+        this.providerIds[newId] = newId;
+        this.ids.put(symbol, newId);
+        return newId;
+    }
+
+    public synchronized int getId(String symbol) {
+        Integer id = this.ids.get(symbol);
+        return id != null ? id : NO_ID;
+    }
+
+    public synchronized String getSymbol(int id) {
+        return this.symbols[id];
+    }
+
+    // Ids handed out so far, arrays indexed by id need at least this length
+    public synchronized int size() {
+        return this.count;
+    }
+
+    public synchronized void addAlias(String symbol, String providerSymbol) {
+        int id = this.intern(symbol);
+        int providerId = this.intern(providerSymbol);
+        this.providerIds[id] = providerId;
+        this.canonicalIds[providerId] = id;
+    }
+
+    // The name a quote provider expects for a symbol
+    public synchronized String getProviderSymbol(String symbol) {
+        Integer id = this.ids.get(symbol);
+        return id != null ? this.symbols[this.providerIds[id]] : symbol;
+    }
+
+    // The name the app uses for a symbol returned by a quote provider
+    public synchronized String getCanonicalSymbol(String symbol) {
+        Integer id = this.ids.get(symbol);
+        return id != null ? this.symbols[this.canonicalIds[id]] : symbol;
+    }
+
+    public synchronized boolean isProviderAlias(String symbol) {
+        Integer id = this.ids.get(symbol);
+        return id != null && this.canonicalIds[id] != id;
+    }
+}
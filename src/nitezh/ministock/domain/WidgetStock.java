@@ -27,15 +27,14 @@ package nitezh.ministock.domain;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
+import nitezh.ministock.utils.DecimalFormatter;
 import nitezh.ministock.utils.NumberTools;
 
 
 public class WidgetStock {
 
-    String price;
+    private final StockQuote quote;
     String displayName;
-    String dailyChange;
-    String dailyPercent;
     String volume;
     String totalChange;
     String totalPercent;
@@ -48,25 +47,25 @@ public class WidgetStock {
     Boolean limitHighTriggered;
     Boolean limitLowTriggered;
 
-    public WidgetStock(StockQuote quote, PortfolioStock portfolioStock) {
+    // Values derived from the quote and portfolio, formatted only for the cells displayed
+    private Double priceValue;
+    private Double buyPriceValue;
+    private Double quantityValue;
+    private Double priceChangeValue;
+    private Double elapsedYears;
 
-        price = quote.getPrice();
+    public WidgetStock(StockQuote quote, PortfolioStock portfolioStock) {
+        this.quote = quote;
         displayName = quote.getName();
         if (portfolioStock != null && !portfolioStock.getCustomName().equals("")) {
             displayName = portfolioStock.getCustomName();
         }
 
         displayName = quote.getName();
-        dailyChange = quote.getChange();
-        dailyPercent = quote.getPercent();
-        volume = NumberTools.getNormalisedVolume(quote.getVolume());
 
-        Double elapsedYears = null;
-        Double priceValue = NumberTools.parseDouble(quote.getPrice());
-        Double dailyChangeValue = NumberTools.parseDouble(quote.getChange());
+        // Portfolio figures are based on the price as displayed, not the raw quote
+        priceValue = NumberTools.parseDouble(quote.getPrice());
 
-        Double buyPriceValue = null;
-        Double quantityValue = null;
         Double limitHighValue = null;
         Double limitLowValue = null;
 
@@ -77,10 +76,8 @@ public class WidgetStock {
             limitLowValue = NumberTools.parseDouble(portfolioStock.getLowLimit());
         }
 
-        Double priceChangeValue = null;
-        try {
+        if (priceValue != null && buyPriceValue != null) {
             priceChangeValue = priceValue - buyPriceValue;
-        } catch (Exception ignored) {
         }
 
         try {
@@ -90,38 +87,6 @@ public class WidgetStock {
         } catch (Exception ignored) {
         }
 
-        if (priceChangeValue != null) {
-            totalChange = NumberTools.getTrimmedDouble(priceChangeValue, 5);
-        }
-
-        if (priceChangeValue != null) {
-            totalPercent = String.format("%.1f", 100 * (priceChangeValue / buyPriceValue)) + "%";
-        }
-
-        if (priceChangeValue != null && elapsedYears != null) {
-            totalChangeAer = NumberTools.getTrimmedDouble(priceChangeValue / elapsedYears, 5);
-        }
-
-        if (priceChangeValue != null && elapsedYears != null) {
-            totalPercentAer = String.format("%.1f", (100 * (priceChangeValue / buyPriceValue)) / elapsedYears) + "%";
-        }
-
-        if (priceValue != null && quantityValue != null) {
-            plHolding = String.format("%.0f", priceValue * quantityValue);
-        }
-
-        if (dailyChangeValue != null && quantityValue != null) {
-            plDailyChange = String.format("%.0f", dailyChangeValue * quantityValue);
-        }
-
-        if (priceChangeValue != null && quantityValue != null) {
-            plTotalChange = String.format("%.0f", priceChangeValue * quantityValue);
-        }
-
-        if (priceChangeValue != null && quantityValue != null && elapsedYears != null) {
-            plTotalChangeAer = String.format("%.0f", (priceChangeValue * quantityValue) / elapsedYears);
-        }
-
         if (priceValue != null && limitHighValue != null) {
             limitHighTriggered = priceValue > limitHighValue;
         }
@@ -132,7 +97,7 @@ public class WidgetStock {
     }
 
     public String getPrice() {
-        return price;
+        return this.quote.getPrice();
     }
 
     public String getDisplayName() {
@@ -140,46 +105,77 @@ public class WidgetStock {
     }
 
     public String getDailyChange() {
-        return dailyChange;
+        return this.quote.getChange();
     }
 
     public String getDailyPercent() {
-        return dailyPercent;
+        return this.quote.getPercent();
     }
 
     public String getVolume() {
+        if (volume == null) {
+            volume = this.quote.hasVolume()
+                    ? NumberTools.getNormalisedVolume(this.quote.getVolumeValue())
+                    : NumberTools.getNormalisedVolume(this.quote.getVolume());
+        }
         return volume;
     }
 
     public String getTotalChange() {
+        if (totalChange == null && priceChangeValue != null) {
+            totalChange = NumberTools.getTrimmedDouble(priceChangeValue, 5);
+        }
         return totalChange;
     }
 
     public String getTotalPercent() {
+        if (totalPercent == null && priceChangeValue != null) {
+            totalPercent = DecimalFormatter.format(100 * (priceChangeValue / buyPriceValue), 1) + "%";
+        }
         return totalPercent;
     }
 
     public String getTotalChangeAer() {
+        if (totalChangeAer == null && priceChangeValue != null && elapsedYears != null) {
+            totalChangeAer = NumberTools.getTrimmedDouble(priceChangeValue / elapsedYears, 5);
+        }
         return totalChangeAer;
     }
 
     public String getTotalPercentAer() {
+        if (totalPercentAer == null && priceChangeValue != null && elapsedYears != null) {
+            totalPercentAer = DecimalFormatter.format((100 * (priceChangeValue / buyPriceValue)) / elapsedYears, 1) + "%";
+        }
         return totalPercentAer;
     }
 
     public String getPlHolding() {
+        if (plHolding == null && priceValue != null && quantityValue != null) {
+            plHolding = DecimalFormatter.format(priceValue * quantityValue, 0);
+        }
         return plHolding;
     }
 
     public String getPlDailyChange() {
+        Double dailyChangeValue = NumberTools.parseDouble(this.quote.getChange());
+        if (plDailyChange == null && dailyChangeValue != null && quantityValue != null) {
+            plDailyChange = DecimalFormatter.format(dailyChangeValue * quantityValue, 0);
+        }
         return plDailyChange;
     }
 
     public String getPlTotalChange() {
+        if (plTotalChange == null && priceChangeValue != null && quantityValue != null) {
+            plTotalChange = DecimalFormatter.format(priceChangeValue * quantityValue, 0);
+        }
         return plTotalChange;
     }
 
     public String getPlTotalChangeAer() {
+        if (plTotalChangeAer == null && priceChangeValue != null && quantityValue != null
+                && elapsedYears != null) {
+            plTotalChangeAer = DecimalFormatter.format((priceChangeValue * quantityValue) / elapsedYears, 0);
+        }
         return plTotalChangeAer;
     }
 
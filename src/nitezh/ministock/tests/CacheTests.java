@@ -0,0 +1,192 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import nitezh.ministock.utils.Cache;
+import nitezh.ministock.utils.CacheIndex;
+import nitezh.ministock.utils.CacheItem;
+
+
+public class CacheTests extends TestCase {
+
+    private CacheIndex index;
+    private List<String> removedKeys;
+    private Cache cache;
+
+    private Cache buildCache(int maxEntries, long maxBytes) {
+        this.index = new CacheIndex(maxEntries, maxBytes);
+        this.removedKeys = new ArrayList<>();
+        return new Cache() {
+            @Override
+            protected CacheIndex getIndex() {
+                return index;
+            }
+
+            @Override
+            protected void persistItem(String key, CacheItem item) {
+            }
+
+            @Override
+            protected void removeItems(List<String> keys) {
+                removedKeys.addAll(keys);
+            }
+        };
+    }
+
+    public void setUp() {
+        this.cache = this.buildCache(3, 0);
+    }
+
+    public void testGetReturnsStoredValue() {
+        // Act
+        this.cache.put("a", "1", 60);
+
+        // Assert
+        assertEquals("1", this.cache.get("a"));
+        assertNull(this.cache.get("b"));
+        assertEquals(1, this.cache.getHitCount());
+        assertEquals(1, this.cache.getMissCount());
+    }
+
+    public void testExpiredItemIsMissed() {
+        // Act
+        this.cache.put("a", "1", 0);
+
+        // Assert
+        assertNull(this.cache.get("a"));
+        assertEquals(1, this.cache.getMissCount());
+    }
+
+    public void testLeastRecentlyUsedIsEvicted() {
+        // Arrange
+        this.cache.put("a", "1", 60);
+        this.cache.put("b", "2", 60);
+        this.cache.put("c", "3", 60);
+        this.cache.get("a");
+
+        // Act
+        this.cache.put("d", "4", 60);
+
+        // Assert
+        assertNull(this.cache.get("b"));
+        assertEquals("1", this.cache.get("a"));
+        assertEquals("4", this.cache.get("d"));
+        assertEquals(1, this.cache.getEvictionCount());
+        assertTrue(this.removedKeys.contains("b"));
+    }
+
+    public void testByteBudgetIsEnforced() {
+        // Arrange
+        this.cache = this.buildCache(0, 15);
+
+        // Act
+        this.cache.put("a", "1234", 60);
+        this.cache.put("b", "5678", 60);
+
+        // Assert
+        assertNull(this.cache.get("a"));
+        assertEquals("5678", this.cache.get("b"));
+        assertEquals(10, this.index.getByteCount());
+    }
+
+    public void testSweepRemovesExpiredItems() {
+        // Arrange
+        this.cache.put("a", "1", 0);
+        this.cache.put("b", "2", 60);
+
+        // Act
+        this.cache.sweepExpired();
+
+        // Assert
+        assertEquals(1, this.index.size());
+        assertEquals(1, this.index.getExpiredCount());
+        assertTrue(this.removedKeys.contains("a"));
+    }
+
+    public void testConcurrentPutsLeaveNoOrphanedEntries() throws InterruptedException {
+        // Arrange
+        final CacheIndex index = new CacheIndex(5, 0);
+        final Set<String> stored = Collections.synchronizedSet(new HashSet<String>());
+        final Cache cache = new Cache() {
+            @Override
+            protected CacheIndex getIndex() {
+                return index;
+            }
+
+            @Override
+            protected void persistItem(String key, CacheItem item) {
+                Thread.yield();
+                stored.add(key);
+            }
+
+            @Override
+            protected void removeItems(List<String> keys) {
+                stored.removeAll(keys);
+            }
+        };
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 500; i++) {
+                        cache.put(thread + "/" + i, "v", 60);
+                    }
+                }
+            }));
+        }
+
+        // Act
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Assert
+        assertEquals(index.size(), stored.size());
+        for (String key : stored) {
+            assertNotNull(index.peek(key));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.util.Locale;
+import java.util.Random;
+
+import nitezh.ministock.utils.DecimalFormatter;
+
+
+public class DecimalFormatterTests extends TestCase {
+
+    private static final double[] EDGE_VALUES = {0, -0.0, 0.125, 0.15, -0.001, 0.0005, 0.00005,
+            1e-5, 1.005, 2.675, 9.995, 99.5, -99.5, 0.5, 1.5, 2.5, 999.9999, 1e7, 1.234e-7,
+            123456789012.5, 1e21, -1e300, Double.MIN_VALUE, Double.MAX_VALUE};
+
+    private Locale defaultLocale;
+
+    private static void assertMatchesFormat(double value) {
+        for (int decimals = 0; decimals <= 6; decimals++) {
+            assertEquals(value + " to " + decimals,
+                    String.format("%." + decimals + "f", value),
+                    DecimalFormatter.format(value, decimals));
+        }
+    }
+
+    public void setUp() {
+        this.defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.US);
+    }
+
+    public void tearDown() {
+        Locale.setDefault(this.defaultLocale);
+    }
+
+    public void testEdgeValuesMatchStringFormat() {
+        // Act and Assert
+        for (double value : EDGE_VALUES) {
+            assertMatchesFormat(value);
+        }
+    }
+
+    public void testRandomValuesMatchStringFormat() {
+        // Arrange
+        Random random = new Random(42);
+
+        // Act and Assert
+        for (int i = 0; i < 5000; i++) {
+            double scale = Math.pow(10, random.nextInt(16) - 6);
+            assertMatchesFormat((random.nextDouble() - 0.5) * scale);
+        }
+    }
+
+    public void testUsesLocaleDecimalSeparator() {
+        // Arrange
+        Locale.setDefault(Locale.GERMANY);
+
+        // Act and Assert
+        assertEquals("-0,73", DecimalFormatter.format(-0.73, 2));
+        assertMatchesFormat(1234.5678);
+    }
+
+    public void testNonFiniteValuesMatchStringFormat() {
+        // Act and Assert
+        assertEquals(String.format("%.2f", Double.NaN), DecimalFormatter.format(Double.NaN, 2));
+        assertEquals(String.format("%.1f", Double.NEGATIVE_INFINITY),
+                DecimalFormatter.format(Double.NEGATIVE_INFINITY, 1));
+    }
+}
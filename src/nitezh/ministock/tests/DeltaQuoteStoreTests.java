@@ -0,0 +1,155 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+
+import nitezh.ministock.dataaccess.DeltaQuoteStore;
+import nitezh.ministock.domain.StockQuote;
+
+
+public class DeltaQuoteStoreTests extends TestCase {
+
+    private File dir;
+
+    private static HashMap<String, StockQuote> buildQuotes(String... prices) {
+        HashMap<String, StockQuote> quotes = new HashMap<>();
+        for (int i = 0; i < prices.length; i++) {
+            String symbol = "S" + i;
+            quotes.put(symbol, new StockQuote(symbol, prices[i], "0.10", "0.5%", "NMS", "100", symbol));
+        }
+        return quotes;
+    }
+
+    public void setUp() throws IOException {
+        this.dir = File.createTempFile("quotes", "");
+        this.dir.delete();
+        this.dir.mkdir();
+    }
+
+    public void tearDown() {
+        for (File file : this.dir.listFiles()) {
+            file.delete();
+        }
+        this.dir.delete();
+    }
+
+    public void testOnlyChangedRecordsAreWritten() {
+        // Arrange
+        DeltaQuoteStore store = new DeltaQuoteStore(this.dir);
+        store.write(buildQuotes("10.00", "20.00", "30.00"), 1000L);
+
+        // Act
+        int written = store.write(buildQuotes("10.00", "21.00", "30.00"), 2000L);
+
+        // Assert
+        assertEquals(1, written);
+        HashMap<String, StockQuote> loaded = new DeltaQuoteStore(this.dir).read();
+        assertEquals(3, loaded.size());
+        assertEquals("21.00", loaded.get("S1").getPrice());
+        assertEquals(1, store.getJournalRecordCount());
+    }
+
+    public void testRemovedSymbolsAreDropped() {
+        // Arrange
+        DeltaQuoteStore store = new DeltaQuoteStore(this.dir);
+        store.write(buildQuotes("10.00", "20.00"), 1000L);
+        HashMap<String, StockQuote> quotes = buildQuotes("10.00", "20.00");
+        quotes.remove("S0");
+
+        // Act
+        store.write(quotes, 2000L);
+
+        // Assert
+        DeltaQuoteStore reloaded = new DeltaQuoteStore(this.dir);
+        assertFalse(reloaded.read().containsKey("S0"));
+        assertEquals(2000L, reloaded.getTime());
+    }
+
+    public void testJournalIsCompactedPastThreshold() {
+        // Arrange
+        DeltaQuoteStore store = new DeltaQuoteStore(this.dir, 3);
+        store.write(buildQuotes("10.00", "20.00"), 1000L);
+        store.write(buildQuotes("11.00", "21.00"), 2000L);
+
+        // Act
+        int written = store.write(buildQuotes("12.00", "22.00"), 3000L);
+
+        // Assert
+        assertEquals(2, written);
+        assertEquals(0, store.getJournalRecordCount());
+        assertFalse(new File(this.dir, DeltaQuoteStore.JOURNAL_NAME).exists());
+        assertEquals("12.00", new DeltaQuoteStore(this.dir).read().get("S0").getPrice());
+    }
+
+    public void testTornJournalEntryIsIgnored() throws IOException {
+        // Arrange
+        DeltaQuoteStore store = new DeltaQuoteStore(this.dir);
+        store.write(buildQuotes("10.00"), 1000L);
+        store.write(buildQuotes("11.00"), 2000L);
+        FileOutputStream out = new FileOutputStream(new File(this.dir, DeltaQuoteStore.JOURNAL_NAME), true);
+        out.write(new byte[]{0, 0, 0, 0, 0, 0, 11, -72, 0, 0, 0, 1, 3});
+        out.close();
+
+        // Act
+        HashMap<String, StockQuote> loaded = new DeltaQuoteStore(this.dir).read();
+
+        // Assert
+        assertEquals("11.00", loaded.get("S0").getPrice());
+    }
+
+    public void testStaleJournalIsNotReplayedOverNewerSnapshot() throws IOException {
+        // Arrange
+        DeltaQuoteStore store = new DeltaQuoteStore(this.dir, 3);
+        store.write(buildQuotes("10.00", "20.00"), 1000L);
+        store.write(buildQuotes("11.00", "20.00"), 2000L);
+        File journal = new File(this.dir, DeltaQuoteStore.JOURNAL_NAME);
+        File saved = new File(this.dir, "journal.saved");
+        Files.copy(journal.toPath(), saved.toPath());
+        store.write(buildQuotes("12.00", "22.00"), 3000L);
+        // Put the journal back as if the compaction crashed before deleting it
+        Files.move(saved.toPath(), journal.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        // Act
+        DeltaQuoteStore reloaded = new DeltaQuoteStore(this.dir, 3);
+        HashMap<String, StockQuote> loaded = reloaded.read();
+
+        // Assert
+        assertEquals("12.00", loaded.get("S0").getPrice());
+        assertEquals(3000L, reloaded.getTime());
+        reloaded.write(buildQuotes("13.00", "22.00"), 4000L);
+        reloaded.write(buildQuotes("13.00", "23.00"), 5000L);
+        HashMap<String, StockQuote> latest = new DeltaQuoteStore(this.dir, 3).read();
+        assertEquals("13.00", latest.get("S0").getPrice());
+        assertEquals("23.00", latest.get("S1").getPrice());
+    }
+}
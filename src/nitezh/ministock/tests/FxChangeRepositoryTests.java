@@ -29,14 +29,38 @@ import junit.framework.TestCase;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import nitezh.ministock.dataaccess.FxChangeRepository;
 import nitezh.ministock.tests.mocks.MockCache;
+import nitezh.ministock.utils.Cache;
+import nitezh.ministock.utils.CacheItem;
 
 
 public class FxChangeRepositoryTests extends TestCase {
 
+    private static final List<String> FX_SYMBOLS = Collections.singletonList("EURUSD=X");
+
     private FxChangeRepository fxRepository;
 
+    // Serves one response for every url, expiring the given number of seconds from now
+    private static Cache buildCache(String data, int ttl) {
+        final CacheItem item = new CacheItem(data, System.currentTimeMillis() + ttl * 1000L);
+        return new MockCache() {
+            @Override
+            public String get(String key) {
+                return item.getValue();
+            }
+
+            @Override
+            public CacheItem getItem(String key) {
+                return item;
+            }
+        };
+    }
+
     public void setUp() {
         this.fxRepository = new FxChangeRepository();
     }
@@ -54,4 +78,34 @@ public class FxChangeRepositoryTests extends TestCase {
         // Assert
         assertNotNull(json);
     }
-}
\ No newline at end of file
+
+    public void testChangesExpireWithCachedResponse() {
+        // Arrange
+        this.fxRepository.getChanges(buildCache("{\"EURUSD=X\": \"1.10\"}", -3600), FX_SYMBOLS);
+
+        // Act
+        Map<String, String> changes = this.fxRepository.getChanges(
+                buildCache("{\"EURUSD=X\": \"1.20\"}", -3600), FX_SYMBOLS);
+
+        // Assert
+        assertEquals("1.20", changes.get("EURUSD=X"));
+    }
+
+    public void testSharedChangesCannotBeModified() {
+        // Arrange
+        Map<String, String> changes = this.fxRepository.getChanges(
+                buildCache("{\"EURUSD=X\": \"1.10\"}", -3600), FX_SYMBOLS);
+
+        // Act
+        boolean isModified = true;
+        try {
+            changes.put("GBPUSD=X", "1.30");
+        } catch (UnsupportedOperationException e) {
+            isModified = false;
+        }
+
+        // Assert
+        assertFalse(isModified);
+        assertEquals(1, changes.size());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import org.json.JSONException;
+
+import nitezh.ministock.utils.JsonPullReader;
+
+
+public class JsonPullReaderTests extends TestCase {
+
+    public void testReadsArrayOfObjects() throws JSONException {
+        // Arrange
+        JsonPullReader reader = new JsonPullReader(
+                "// [{\"t\": \".DJI\", \"l\": 17634.74, \"x\": {\"y\": [1, 2]}},\n{\"t\": \".IXIC\"}]", 3);
+
+        // Act
+        reader.beginArray();
+        reader.beginObject();
+        String firstName = reader.nextName();
+        String firstValue = reader.nextString();
+        String secondName = reader.nextName();
+        String secondValue = reader.nextString();
+        reader.nextName();
+        reader.skipValue();
+        reader.endObject();
+        reader.beginObject();
+        reader.nextName();
+        String lastValue = reader.nextString();
+        reader.endObject();
+        reader.endArray();
+
+        // Assert
+        assertEquals("t", firstName);
+        assertEquals(".DJI", firstValue);
+        assertEquals("l", secondName);
+        assertEquals("17634.74", secondValue);
+        assertEquals(".IXIC", lastValue);
+        assertEquals(JsonPullReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    public void testReadsEscapesAndNull() throws JSONException {
+        // Arrange
+        JsonPullReader reader = new JsonPullReader("{\"a\": \"x\\\"y\\u0041\", \"b\": null}");
+
+        // Act
+        reader.beginObject();
+        reader.nextName();
+        String escaped = reader.nextString();
+        reader.nextName();
+        String missing = reader.nextString();
+        reader.endObject();
+
+        // Assert
+        assertEquals("x\"yA", escaped);
+        assertNull(missing);
+    }
+
+    public void testEmptyInputIsAnError() {
+        // Arrange
+        JsonPullReader reader = new JsonPullReader("");
+
+        // Act
+        try {
+            reader.beginArray();
+            fail();
+        } catch (JSONException ignored) {
+        }
+    }
+}
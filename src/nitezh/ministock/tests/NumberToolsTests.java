@@ -0,0 +1,85 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.util.Locale;
+
+import nitezh.ministock.utils.NumberTools;
+
+
+public class NumberToolsTests extends TestCase {
+
+    private Locale defaultLocale;
+
+    public void setUp() {
+        this.defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.US);
+    }
+
+    public void tearDown() {
+        Locale.setDefault(this.defaultLocale);
+    }
+
+    public void testParsesPlainDecimals() {
+        // Arrange
+        String[] values = {"0", "-0.73", "118.50", "0.000123", ".5", "5.", "123456789.123456",
+                "00012.5000", "99999999999999.9"};
+
+        // Act and Assert
+        for (String value : values) {
+            assertEquals(value, Double.parseDouble(value), NumberTools.parseDouble(value), 0);
+        }
+    }
+
+    public void testFallsBackToLocaleFormat() {
+        // Act and Assert
+        assertEquals(1234.5, NumberTools.parseDouble("1,234.5"), 0);
+        assertEquals(-0.61, NumberTools.parseDouble("-0.61%"), 0);
+        assertEquals(1.5, NumberTools.parseDouble("1.5K"), 0);
+        assertEquals(0.1234567890123456789, NumberTools.parseDouble("0.1234567890123456789"), 0);
+    }
+
+    public void testUnparseableValuesReturnDefault() {
+        // Act and Assert
+        assertNull(NumberTools.parseDouble(null));
+        assertNull(NumberTools.parseDouble(""));
+        assertNull(NumberTools.parseDouble("N/A"));
+        assertNull(NumberTools.parseDouble("+5"));
+        assertNull(NumberTools.parseDouble("-"));
+        assertEquals(7.0, NumberTools.parseDouble("abc", 7.0), 0);
+        assertTrue(Double.isNaN(NumberTools.parseDoubleOrNaN(".")));
+    }
+
+    public void testUsesLocaleDecimalSeparator() {
+        // Arrange
+        Locale.setDefault(Locale.GERMANY);
+
+        // Act and Assert
+        assertEquals(-0.73, NumberTools.parseDouble("-0,73"), 0);
+        assertEquals(1.5, NumberTools.parseDouble("1.5"), 0);
+    }
+}
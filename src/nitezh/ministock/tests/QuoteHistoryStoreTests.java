@@ -0,0 +1,199 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import nitezh.ministock.dataaccess.QuoteHistoryStore;
+import nitezh.ministock.domain.StockQuote;
+
+
+public class QuoteHistoryStoreTests extends TestCase {
+
+    private static final long START = 1500000000000L;
+
+    private File dir;
+
+    public void setUp() throws IOException {
+        this.dir = File.createTempFile("history", "");
+        this.dir.delete();
+        this.dir.mkdir();
+    }
+
+    public void tearDown() {
+        for (File file : this.dir.listFiles()) {
+            file.delete();
+        }
+        this.dir.delete();
+    }
+
+    public void testRangeReturnsSamplesInOrder() {
+        // Arrange
+        QuoteHistoryStore store = new QuoteHistoryStore(this.dir, 8, 4);
+        for (int i = 0; i < 5; i++) {
+            store.append("AAPL", START + i * 60000L, 100 + i, 1000 * i);
+        }
+
+        // Act
+        List<QuoteHistoryStore.Sample> samples = store.getRange("AAPL", START + 60000L, START + 180000L);
+
+        // Assert
+        assertEquals(3, samples.size());
+        assertEquals(START + 60000L, samples.get(0).getTime());
+        assertEquals(101.0, samples.get(0).getPrice());
+        assertEquals(103.0, samples.get(2).getPrice());
+        assertEquals(3000f, samples.get(2).getVolume());
+        store.close();
+    }
+
+    public void testOldestSamplesAreOverwritten() {
+        // Arrange
+        QuoteHistoryStore store = new QuoteHistoryStore(this.dir, 4, 4);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            store.append("AAPL", START + i * 1000L, i, 0);
+        }
+
+        // Assert
+        List<QuoteHistoryStore.Sample> samples = store.getRange("AAPL", 0, Long.MAX_VALUE);
+        assertEquals(4, store.getSampleCount("AAPL"));
+        assertEquals(4, samples.size());
+        assertEquals(6.0, samples.get(0).getPrice());
+        assertEquals(9.0, samples.get(3).getPrice());
+        store.close();
+    }
+
+    public void testRepeatedTimeIsIgnored() {
+        // Arrange
+        QuoteHistoryStore store = new QuoteHistoryStore(this.dir, 4, 4);
+        store.append("AAPL", START, 1, 0);
+
+        // Act
+        boolean appended = store.append("AAPL", START, 2, 0);
+
+        // Assert
+        assertFalse(appended);
+        assertEquals(1, store.getSampleCount("AAPL"));
+        store.close();
+    }
+
+    public void testUnchangedQuoteIsIgnored() {
+        // Arrange
+        QuoteHistoryStore store = new QuoteHistoryStore(this.dir, 4, 4);
+        store.append("AAPL", START, 150.25, 1200);
+
+        // Act
+        boolean repeated = store.append("AAPL", START + 300000L, 150.25, 1200);
+        boolean traded = store.append("AAPL", START + 600000L, 150.25, 1500);
+
+        // Assert
+        assertFalse(repeated);
+        assertTrue(traded);
+        List<QuoteHistoryStore.Sample> samples = store.getRange("AAPL", 0, Long.MAX_VALUE);
+        assertEquals(2, samples.size());
+        assertEquals(START + 600000L, samples.get(1).getTime());
+        store.close();
+    }
+
+    public void testDownsampleKeepsLastSampleOfInterval() {
+        // Arrange
+        QuoteHistoryStore store = new QuoteHistoryStore(this.dir, 16, 4);
+        for (int i = 0; i < 10; i++) {
+            store.append("AAPL", START + i * 60000L, i, 0);
+        }
+
+        // Act
+        List<QuoteHistoryStore.Sample> samples = store.getDownsampled("AAPL", START, START + 540000L, 300000L);
+
+        // Assert
+        assertEquals(2, samples.size());
+        assertEquals(START + 240000L, samples.get(0).getTime());
+        assertEquals(4.0, samples.get(0).getPrice());
+        assertEquals(9.0, samples.get(1).getPrice());
+        store.close();
+    }
+
+    public void testSamplesSurviveReopen() {
+        // Arrange
+        QuoteHistoryStore store = new QuoteHistoryStore(this.dir, 8, 4);
+        StockQuote quote = new StockQuote("AAPL", "150.25", "0.10", "0.5%", "NMS", "1200", "Apple");
+        quote.setTime(START);
+        store.append(Collections.singletonMap("AAPL", quote));
+        store.close();
+
+        // Act
+        QuoteHistoryStore reopened = new QuoteHistoryStore(this.dir, 8, 4);
+        List<QuoteHistoryStore.Sample> samples = reopened.getRange("AAPL", 0, Long.MAX_VALUE);
+
+        // Assert
+        assertEquals(1, samples.size());
+        assertEquals(150.25, samples.get(0).getPrice());
+        assertEquals(1200f, samples.get(0).getVolume());
+        reopened.close();
+    }
+
+    public void testOnlyQuotesFetchedSinceLastSampleAreAppended() {
+        // Arrange
+        QuoteHistoryStore store = new QuoteHistoryStore(this.dir, 8, 4);
+        HashMap<String, StockQuote> quotes = new HashMap<>();
+        StockQuote live = new StockQuote("AAPL", "150.25", "0.10", "0.5%", "NMS", "1200", "Apple");
+        live.setTime(START);
+        quotes.put("AAPL", live);
+        quotes.put("MSFT", new StockQuote("MSFT", "50.00", "0.10", "0.5%", "NMS", "100", "Microsoft"));
+        store.append(quotes);
+
+        // Act
+        int appended = store.append(quotes);
+
+        // Assert
+        assertEquals(0, appended);
+        assertEquals(1, store.getSampleCount("AAPL"));
+        assertEquals(0, store.getSampleCount("MSFT"));
+        store.close();
+    }
+
+    public void testLeastRecentlyUpdatedSymbolIsEvicted() {
+        // Arrange
+        QuoteHistoryStore store = new QuoteHistoryStore(this.dir, 4, 2);
+        store.append("OLD", START, 1, 0);
+        store.append("NEW", START + 1000L, 2, 0);
+
+        // Act
+        store.append("MSFT", START + 2000L, 3, 0);
+
+        // Assert
+        assertEquals(0, store.getSampleCount("OLD"));
+        assertEquals(1, store.getSampleCount("NEW"));
+        assertEquals(1, store.getSampleCount("MSFT"));
+        store.close();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+import nitezh.ministock.dataaccess.QuoteSnapshotFile;
+import nitezh.ministock.domain.StockQuote;
+
+
+public class QuoteSnapshotFileTests extends TestCase {
+
+    private File dir;
+    private QuoteSnapshotFile snapshotFile;
+
+    public void setUp() throws IOException {
+        this.dir = File.createTempFile("snapshot", "");
+        this.dir.delete();
+        this.dir.mkdir();
+        this.snapshotFile = new QuoteSnapshotFile(this.dir);
+    }
+
+    public void tearDown() {
+        for (File file : this.dir.listFiles()) {
+            file.delete();
+        }
+        this.dir.delete();
+    }
+
+    public void testRoundTripKeepsDisplayValues() {
+        // Arrange
+        HashMap<String, StockQuote> quotes = new HashMap<>();
+        quotes.put("AAPL", new StockQuote("AAPL", "118.504", "-0.73", "-0.61%", "NMS", "12345", "Apple Inc."));
+        quotes.put("EURUSD=X", new StockQuote("EURUSD=X", "1.123456", "N/A", "N/A", "", "0", "EUR/USD", "1.1"));
+        quotes.put("BAD", new StockQuote("BAD", "N/A", "N/A", "N/A", "", "", "Bad"));
+
+        // Act
+        boolean written = this.snapshotFile.write(quotes, 1234567890L);
+        HashMap<String, StockQuote> loaded = this.snapshotFile.read();
+
+        // Assert
+        assertTrue(written);
+        assertEquals(1234567890L, this.snapshotFile.getTime());
+        assertEquals(3, loaded.size());
+        for (StockQuote quote : quotes.values()) {
+            StockQuote copy = loaded.get(quote.getSymbol());
+            assertEquals(quote.getPrice(), copy.getPrice());
+            assertEquals(quote.getChange(), copy.getChange());
+            assertEquals(quote.getPercent(), copy.getPercent());
+            assertEquals(quote.getVolume(), copy.getVolume());
+            assertEquals(quote.getExchange(), copy.getExchange());
+            assertEquals(quote.getName(), copy.getName());
+        }
+        assertFalse(new File(this.dir, QuoteSnapshotFile.FILE_NAME + ".tmp").exists());
+    }
+
+    public void testCorruptFileIsIgnored() throws IOException {
+        // Arrange
+        FileOutputStream out = new FileOutputStream(this.snapshotFile.getFile());
+        out.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21});
+        out.close();
+
+        // Act
+        HashMap<String, StockQuote> loaded = this.snapshotFile.read();
+
+        // Assert
+        assertNull(loaded);
+    }
+}
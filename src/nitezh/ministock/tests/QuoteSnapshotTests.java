@@ -0,0 +1,129 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import nitezh.ministock.domain.PortfolioStock;
+import nitezh.ministock.domain.QuoteSnapshot;
+import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.domain.SymbolTable;
+
+
+public class QuoteSnapshotTests extends TestCase {
+
+    private static QuoteSnapshot buildSnapshot(HashMap<String, PortfolioStock> portfolioStocks) {
+        HashMap<String, StockQuote> quotes = new HashMap<>();
+        quotes.put("AAPL", new StockQuote("AAPL", "100.00", "1.00", "1.0%", "NMS", "100", "Apple"));
+        quotes.put("MSFT", new StockQuote("MSFT", "50.00", "-1.00", "-2.0%", "NMS", "100", "Microsoft"));
+        HashMap<Integer, List<String>> widgetSymbols = new HashMap<>();
+        widgetSymbols.put(1, Arrays.asList("AAPL", "", "GOOG"));
+        widgetSymbols.put(2, Collections.singletonList("MSFT"));
+        return new QuoteSnapshot(quotes, "18 OCT 10:00", portfolioStocks, widgetSymbols);
+    }
+
+    public void testSelectsQuotesAndPositionsForWidgetSymbols() {
+        // Arrange
+        HashMap<String, PortfolioStock> portfolioStocks = new HashMap<>();
+        portfolioStocks.put("AAPL", new PortfolioStock("AAPL", "90.00", "", "10", "", "", "", null));
+        portfolioStocks.put("GOOG", new PortfolioStock("GOOG", "", "", "", "", "", "", null));
+        portfolioStocks.put("MSFT", null);
+        QuoteSnapshot snapshot = buildSnapshot(portfolioStocks);
+
+        // Act
+        List<String> symbols = snapshot.getWidgetSymbols(1);
+        HashMap<String, StockQuote> quotes = snapshot.getQuotesForSymbols(symbols);
+        HashMap<String, PortfolioStock> stocks = snapshot.getPortfolioStocksForSymbols(symbols);
+
+        // Assert
+        assertEquals(1, quotes.size());
+        assertEquals("100.00", quotes.get("AAPL").getPrice());
+        assertEquals(1, stocks.size());
+        assertTrue(stocks.containsKey("AAPL"));
+        assertEquals(2, snapshot.getPortfolioStocks().size());
+        assertEquals(3, snapshot.getWidgetsStockSymbols().size());
+    }
+
+    public void testSelectsRowsByResolvedIds() {
+        // Arrange
+        HashMap<String, PortfolioStock> portfolioStocks = new HashMap<>();
+        portfolioStocks.put("AAPL", new PortfolioStock("AAPL", "90.00", "", "10", "", "", "", null));
+        portfolioStocks.put("GOOG", new PortfolioStock("GOOG", "", "", "", "", "", "", null));
+        QuoteSnapshot snapshot = buildSnapshot(portfolioStocks);
+
+        // Act
+        int[] symbolIds = snapshot.getWidgetSymbolIds(1);
+        StockQuote[] quotes = snapshot.getQuotes(symbolIds);
+        PortfolioStock[] stocks = snapshot.getPortfolioStocks(symbolIds);
+
+        // Assert
+        assertEquals(3, symbolIds.length);
+        assertEquals(SymbolTable.NO_ID, symbolIds[1]);
+        assertEquals("100.00", quotes[0].getPrice());
+        assertNull(quotes[1]);
+        assertNull(quotes[2]);
+        assertNotNull(stocks[0]);
+        assertNull(stocks[2]);
+        assertNull(snapshot.getWidgetSymbolIds(3));
+    }
+
+    public void testSnapshotIsNotChangedBySourceMaps() {
+        // Arrange
+        HashMap<String, PortfolioStock> portfolioStocks = new HashMap<>();
+        QuoteSnapshot snapshot = buildSnapshot(portfolioStocks);
+
+        // Act
+        portfolioStocks.put("AAPL", new PortfolioStock("AAPL", "90.00", "", "10", "", "", "", null));
+
+        // Assert
+        assertTrue(snapshot.getPortfolioStocks().isEmpty());
+        try {
+            snapshot.getQuotes().clear();
+            fail();
+        } catch (UnsupportedOperationException ignored) {
+        }
+    }
+
+    public void testReplacePortfolioKeepsQuotes() {
+        // Arrange
+        QuoteSnapshot.publish(buildSnapshot(new HashMap<String, PortfolioStock>()));
+        HashMap<String, PortfolioStock> portfolioStocks = new HashMap<>();
+        portfolioStocks.put("MSFT", new PortfolioStock("MSFT", "40.00", "", "5", "", "", "", null));
+
+        // Act
+        QuoteSnapshot.replacePortfolio(portfolioStocks);
+
+        // Assert
+        QuoteSnapshot snapshot = QuoteSnapshot.getCurrent();
+        assertEquals(2, snapshot.getQuotes().size());
+        assertEquals(1, snapshot.getPortfolioStocksForSymbols(snapshot.getWidgetSymbols(2)).size());
+        QuoteSnapshot.publish(null);
+    }
+}
@@ -26,21 +26,28 @@ package nitezh.ministock.tests;
 
 import junit.framework.TestCase;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 
+import nitezh.ministock.dataaccess.DeltaQuoteStore;
 import nitezh.ministock.domain.StockQuote;
 import nitezh.ministock.domain.StockQuoteRepository;
 import nitezh.ministock.tests.mocks.MockCache;
 import nitezh.ministock.tests.mocks.MockStorage;
 import nitezh.ministock.tests.mocks.MockWidgetRepository;
+import nitezh.ministock.utils.HttpTransport;
+import nitezh.ministock.utils.UrlConnectionTransport;
+import nitezh.ministock.utils.UrlDataTools;
 
 
 public class StockQuoteRepositoryTests extends TestCase {
 
     private StockQuoteRepository stockRepository;
+    private File dir;
 
     public void setUp() {
         MockWidgetRepository mockWidgetRepository = new MockWidgetRepository();
@@ -53,6 +60,16 @@ public class StockQuoteRepositoryTests extends TestCase {
                 new MockStorage(), new MockCache(), mockWidgetRepository);
     }
 
+    public void tearDown() {
+        UrlDataTools.setTransport(new UrlConnectionTransport());
+        if (this.dir != null) {
+            for (File file : this.dir.listFiles()) {
+                file.delete();
+            }
+            this.dir.delete();
+        }
+    }
+
     public void testGetLiveQuotes() {
         // Arrange
         List<String> symbols = Arrays.asList("AAPL", "GOOG", "^DJI", "^IXIC");
@@ -110,4 +127,45 @@ public class StockQuoteRepositoryTests extends TestCase {
         assertEquals("^IXIC", ixicQuote.getSymbol());
         assertEquals("NASDAQ", ixicQuote.getExchange());
     }
-}
\ No newline at end of file
+
+    public void testSavedQuotesFillOnlyMissingSymbolsAtDeadline() throws IOException {
+        // Arrange
+        this.dir = File.createTempFile("quotes", "");
+        this.dir.delete();
+        this.dir.mkdir();
+        HashMap<String, StockQuote> savedQuotes = new HashMap<>();
+        savedQuotes.put("AAPL", new StockQuote("AAPL", "90.00", "0.10", "0.1%", "NMS", "100", "Apple Inc."));
+        savedQuotes.put("MSFT", new StockQuote("MSFT", "40.00", "0.10", "0.2%", "NMS", "100", "Microsoft"));
+        savedQuotes.put("^DJI", new StockQuote("^DJI", "30000.00", "10.00", "0.1%", "DJX", "0", "Dow"));
+        new DeltaQuoteStore(this.dir).write(savedQuotes, 1000L);
+
+        // Yahoo only knows AAPL, Google answers after the deadline
+        UrlDataTools.setTransport(new HttpTransport() {
+            @Override
+            public Response get(String url, String etag, String lastModified) throws IOException {
+                if (url.contains("google")) {
+                    try {
+                        Thread.sleep(2000);
+                    } catch (InterruptedException ignored) {
+                    }
+                    return new Response(500, "", null, null);
+                }
+                return new Response(200, "\"AAPL\",\"10/16/2026\",\"4:00pm\",118.50,-0.73,"
+                        + "\"-0.61%\",\"NMS\",12345,\"Apple Inc.\"\n", null, null);
+            }
+        });
+        StockQuoteRepository repository = new StockQuoteRepository(new MockStorage(),
+                new MockCache(), new MockWidgetRepository(), this.dir, 500);
+
+        // Act
+        HashMap<String, StockQuote> quotes = repository.getLiveQuotes(
+                Arrays.asList("AAPL", "MSFT", "GOOG", "^DJI"));
+
+        // Assert
+        assertEquals(3, quotes.size());
+        assertEquals(118.5, quotes.get("AAPL").getPriceValue());
+        assertEquals(40.0, quotes.get("MSFT").getPriceValue());
+        assertEquals(30000.0, quotes.get("^DJI").getPriceValue());
+        assertFalse(quotes.containsKey("GOOG"));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import nitezh.ministock.domain.PortfolioStock;
+import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.domain.WidgetStock;
+
+
+// Expected strings were captured from the string-based quote model before it was parsed once into numbers
+public class StockQuoteTests extends TestCase {
+
+    private static PortfolioStock buildHolding(String symbol) {
+        return new PortfolioStock(symbol, "10.00", "2020-01-01", "100", "", "", "", null);
+    }
+
+    private static void assertQuote(StockQuote quote, String price, String change, String percent, String volume) {
+        assertEquals(price, quote.getPrice());
+        assertEquals(change, quote.getChange());
+        assertEquals(percent, quote.getPercent());
+        assertEquals(volume, quote.getVolume());
+    }
+
+    private static void assertHolding(WidgetStock stock, String totalChange, String totalPercent,
+                                      String plHolding, String plDailyChange, String plTotalChange) {
+        assertEquals(totalChange, stock.getTotalChange());
+        assertEquals(totalPercent, stock.getTotalPercent());
+        assertEquals(plHolding, stock.getPlHolding());
+        assertEquals(plDailyChange, stock.getPlDailyChange());
+        assertEquals(plTotalChange, stock.getPlTotalChange());
+    }
+
+    public void testNegativeChange() {
+        // Arrange
+        StockQuote quote = new StockQuote("AAPL", "118.50", "-0.73", "-0.61%", "NMS", "12345678", "Apple Inc.");
+
+        // Act
+        WidgetStock stock = new WidgetStock(quote, null);
+        WidgetStock holding = new WidgetStock(quote, buildHolding("AAPL"));
+
+        // Assert
+        assertQuote(quote, "118.50", "-0.73", "-0.6%", "12345678");
+        assertEquals("-0.73", stock.getDailyChange());
+        assertEquals("-0.6%", stock.getDailyPercent());
+        assertEquals("12M", stock.getVolume());
+        assertNull(stock.getTotalChange());
+        assertHolding(holding, "108.50", "1085.0%", "11850", "-73", "10850");
+    }
+
+    public void testPositiveChangeLosesSign() {
+        // Arrange
+        StockQuote quote = new StockQuote("MSFT", "50.00", "+1.25", "+2.56%", "NMS", "N/A", "Microsoft");
+
+        // Act
+        WidgetStock holding = new WidgetStock(quote, buildHolding("MSFT"));
+
+        // Assert
+        assertQuote(quote, "50.00", "1.25", "2.6%", "N/A");
+        assertEquals("N/A", holding.getVolume());
+        assertHolding(holding, "40.00", "400.0%", "5000", "125", "4000");
+    }
+
+    public void testMissingVolumeAndSmallPrice() {
+        // Arrange
+        StockQuote quote = new StockQuote("PENNY", "0.0512", "-0.0011", "-2.10%", "PNK", "", "Penny Corp");
+
+        // Act
+        WidgetStock holding = new WidgetStock(quote, buildHolding("PENNY"));
+
+        // Assert
+        assertQuote(quote, "0.0512", "-0.001", "-2.1%", "");
+        assertEquals("", holding.getVolume());
+        assertHolding(holding, "-9.95", "-99.5%", "5", "-0", "-995");
+    }
+
+    public void testCurrencyChangeFromPreviousPrice() {
+        // Arrange
+        StockQuote quote = new StockQuote("EURUSD=X", "1.1725", "N/A", "N/A", "CCY", "0", "EUR/USD", "1.1700");
+
+        // Act
+        WidgetStock holding = new WidgetStock(quote, buildHolding("EURUSD=X"));
+
+        // Assert
+        assertQuote(quote, "1.1725", "0.003", "0.2%", "0");
+        assertEquals("0", holding.getVolume());
+        assertHolding(holding, "-8.83", "-88.3%", "117", "0", "-883");
+    }
+
+    public void testLargePriceUsesDisplayedPrecision() {
+        // Arrange
+        StockQuote quote = new StockQuote("^DJI", "26543.33", "-120.50", "-0.45%", "DJX", "0", "Dow");
+
+        // Act
+        WidgetStock holding = new WidgetStock(quote, buildHolding("^DJI"));
+
+        // Assert
+        assertQuote(quote, "26543.3", "-120.5", "-0.5%", "0");
+        assertHolding(holding, "26533", "265333.0%", "2654330", "-12050", "2653330");
+    }
+
+    public void testPercentWithoutSymbol() {
+        // Arrange
+        StockQuote quote = new StockQuote("BIG", "1234.5", "12", "1", "NMS", "987654321", "Big Co");
+
+        // Act
+        WidgetStock holding = new WidgetStock(quote, buildHolding("BIG"));
+
+        // Assert
+        assertQuote(quote, "1234.50", "12.00", "1.0%", "987654321");
+        assertEquals("988M", holding.getVolume());
+        assertHolding(holding, "1224.5", "12245.0%", "123450", "1200", "122450");
+    }
+
+    public void testUnavailableValues() {
+        // Arrange
+        StockQuote quote = new StockQuote("BAD", "N/A", "N/A", "N/A", "NYQ", "N/A", "Bad");
+
+        // Act
+        WidgetStock holding = new WidgetStock(quote, buildHolding("BAD"));
+
+        // Assert
+        assertQuote(quote, "0.00", "0.00", "0.0%", "N/A");
+        assertHolding(holding, "-10.00", "-100.0%", "0", "0", "-1000");
+    }
+
+    public void testZeroPriceIsNotShown() {
+        // Arrange
+        StockQuote quote = new StockQuote("ZERO", "0.00", "0.00", "0.00%", "NMS", "1200", "Zero");
+
+        // Act
+        WidgetStock holding = new WidgetStock(quote, buildHolding("ZERO"));
+
+        // Assert
+        assertQuote(quote, null, "0.00", "0.0%", "1200");
+        assertEquals("1K", holding.getVolume());
+        assertHolding(holding, null, null, null, "0", null);
+    }
+}
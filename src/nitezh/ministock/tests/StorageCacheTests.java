@@ -0,0 +1,90 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+
+import nitezh.ministock.tests.mocks.MockStorage;
+import nitezh.ministock.utils.CacheIndex;
+import nitezh.ministock.utils.StorageCache;
+
+
+public class StorageCacheTests extends TestCase {
+
+    private File dir;
+
+    private static void deleteAll(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteAll(child);
+            }
+        }
+        file.delete();
+    }
+
+    public void setUp() throws IOException {
+        this.dir = File.createTempFile("cache", "");
+        this.dir.delete();
+        this.dir.mkdir();
+    }
+
+    public void tearDown() {
+        deleteAll(this.dir);
+    }
+
+    public void testEntriesAreReadBackByANewIndex() {
+        // Arrange
+        StorageCache cache = new StorageCache(new MockStorage(), this.dir, new CacheIndex());
+        cache.put("http://example.com/a?s=AAPL", "a,b\nc,d", 60);
+        cache.put("http://example.com/b", "{}", 60);
+
+        // Act
+        StorageCache reloaded = new StorageCache(new MockStorage(), this.dir, new CacheIndex());
+
+        // Assert
+        assertEquals("a,b\nc,d", reloaded.get("http://example.com/a?s=AAPL"));
+        assertEquals("{}", reloaded.get("http://example.com/b"));
+    }
+
+    public void testEachEntryIsItsOwnFile() {
+        // Arrange
+        StorageCache cache = new StorageCache(new MockStorage(), this.dir, new CacheIndex(1, 0));
+        cache.put("a", "1", 60);
+
+        // Act
+        cache.put("b", "2", 60);
+
+        // Assert
+        File[] files = new File(this.dir, StorageCache.CACHE_DIR).listFiles();
+        assertEquals(1, files.length);
+        StorageCache reloaded = new StorageCache(new MockStorage(), this.dir, new CacheIndex());
+        assertNull(reloaded.get("a"));
+        assertEquals("2", reloaded.get("b"));
+    }
+}
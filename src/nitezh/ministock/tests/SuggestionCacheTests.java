@@ -0,0 +1,108 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nitezh.ministock.utils.SuggestionCache;
+
+
+public class SuggestionCacheTests extends TestCase {
+
+    private static List<Map<String, String>> buildResults(String symbol) {
+        List<Map<String, String>> results = new ArrayList<>();
+        Map<String, String> result = new HashMap<>();
+        result.put("symbol", symbol);
+        result.put("name", symbol + " Inc.");
+        results.add(result);
+        return results;
+    }
+
+    public void testQueriesAreNormalised() {
+        // Arrange
+        SuggestionCache cache = new SuggestionCache(10, 1000, 5000);
+        cache.put("  Apple  Inc ", buildResults("AAPL"), 0);
+
+        // Act
+        List<Map<String, String>> results = cache.get("apple inc", 100);
+
+        // Assert
+        assertEquals("AAPL", results.get(0).get("symbol"));
+    }
+
+    public void testExpiredEntriesAreOnlyServedAsStale() {
+        // Arrange
+        SuggestionCache cache = new SuggestionCache(10, 1000, 5000);
+        cache.put("aapl", buildResults("AAPL"), 0);
+
+        // Act
+        List<Map<String, String>> fresh = cache.get("aapl", 2000);
+        List<Map<String, String>> stale = cache.getStale("aapl", 2000);
+        List<Map<String, String>> gone = cache.getStale("aapl", 7000);
+
+        // Assert
+        assertNull(fresh);
+        assertNotNull(stale);
+        assertNull(gone);
+    }
+
+    public void testLeastRecentlyUsedQueryIsEvicted() {
+        // Arrange
+        SuggestionCache cache = new SuggestionCache(2, 1000, 0);
+        cache.put("a", buildResults("A"), 0);
+        cache.put("b", buildResults("B"), 0);
+        cache.get("a", 0);
+
+        // Act
+        cache.put("c", buildResults("C"), 0);
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a", 0));
+        assertNull(cache.get("b", 0));
+    }
+
+    public void testHottestQueriesArePersisted() {
+        // Arrange
+        SuggestionCache cache = new SuggestionCache(10, 1000, 0);
+        cache.put("a", buildResults("A"), 0);
+        cache.put("b", buildResults("B"), 0);
+        cache.get("b", 0);
+        cache.get("b", 0);
+
+        // Act
+        SuggestionCache loaded = new SuggestionCache(10, 1000, 0);
+        loaded.loadJson(cache.toJson(1));
+
+        // Assert
+        assertEquals(1, loaded.size());
+        assertEquals("B Inc.", loaded.get("b", 500).get(0).get("name"));
+    }
+}
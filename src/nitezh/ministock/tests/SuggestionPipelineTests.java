@@ -0,0 +1,196 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import nitezh.ministock.StockSuggestions;
+import nitezh.ministock.SuggestionPipeline;
+
+
+public class SuggestionPipelineTests extends TestCase {
+
+    private final List<String> lookups = Collections.synchronizedList(new ArrayList<String>());
+
+    private static Map<String, String> buildSuggestion(String symbol, String name) {
+        Map<String, String> suggestion = new HashMap<>();
+        suggestion.put("symbol", symbol);
+        suggestion.put("name", name);
+        return suggestion;
+    }
+
+    private static List<String> getSymbols(List<Map<String, String>> suggestions) {
+        List<String> symbols = new ArrayList<>();
+        for (Map<String, String> suggestion : suggestions) {
+            symbols.add(suggestion.get("symbol"));
+        }
+        return symbols;
+    }
+
+    // Answers every query with the given suggestions, or fails when there are none
+    private SuggestionPipeline buildPipeline(final List<Map<String, String>> suggestions) {
+        return new SuggestionPipeline(new SuggestionPipeline.RemoteLookup() {
+            @Override
+            public List<Map<String, String>> getSuggestions(String query) {
+                lookups.add(query);
+                return suggestions;
+            }
+        });
+    }
+
+    public void testMergeKeepsLocalFirstWithoutDuplicates() {
+        // Arrange
+        List<Map<String, String>> local = new ArrayList<>();
+        local.add(buildSuggestion("AAPL", "Apple Inc."));
+        List<Map<String, String>> remote = new ArrayList<>();
+        remote.add(buildSuggestion("AAPL", "Apple Inc."));
+        for (int i = 0; i < 12; i++) {
+            remote.add(buildSuggestion("S" + i, "Stock " + i));
+        }
+
+        // Act
+        List<Map<String, String>> merged = StockSuggestions.merge(local, remote);
+
+        // Assert
+        assertEquals(10, merged.size());
+        assertEquals("AAPL", merged.get(0).get("symbol"));
+        assertEquals("S0", merged.get(1).get("symbol"));
+    }
+
+    public void testFilterMatchesSymbolsAndNameWords() {
+        // Arrange
+        List<Map<String, String>> suggestions = new ArrayList<>();
+        suggestions.add(buildSuggestion("BAC", "Bank of America"));
+        suggestions.add(buildSuggestion("AAPL", "Apple Inc."));
+
+        // Act
+        List<Map<String, String>> byWord = StockSuggestions.filterSuggestions(suggestions, "ame");
+        List<Map<String, String>> bySymbol = StockSuggestions.filterSuggestions(suggestions, " AA");
+
+        // Assert
+        assertEquals(Collections.singletonList("BAC"), getSymbols(byWord));
+        assertEquals(Collections.singletonList("AAPL"), getSymbols(bySymbol));
+    }
+
+    public void testCompleteAnswerRefinesLongerQueries() {
+        // Arrange
+        List<Map<String, String>> remote = new ArrayList<>();
+        remote.add(buildSuggestion("QXA", "Qxa Corp"));
+        remote.add(buildSuggestion("QXB", "Other Qxb"));
+        SuggestionPipeline pipeline = this.buildPipeline(remote);
+        pipeline.getSuggestions("qx");
+
+        // Act
+        List<Map<String, String>> suggestions = pipeline.getSuggestions("qxa");
+
+        // Assert
+        assertEquals(Collections.singletonList("QXA"), getSymbols(suggestions));
+        assertEquals(Collections.singletonList("qx"), this.lookups);
+    }
+
+    public void testFailedLookupIsNotUsedForLongerQueries() {
+        // Arrange
+        SuggestionPipeline pipeline = this.buildPipeline(null);
+        List<Map<String, String>> failed = pipeline.getSuggestions("qz");
+
+        // Act
+        pipeline.getSuggestions("qzz");
+
+        // Assert
+        assertTrue(failed.isEmpty());
+        assertEquals(2, this.lookups.size());
+        assertEquals("qzz", this.lookups.get(1));
+    }
+
+    public void testQuerySupersededDuringDebounceIsNotLookedUp() throws InterruptedException {
+        // Arrange
+        final SuggestionPipeline pipeline = this.buildPipeline(
+                Collections.singletonList(buildSuggestion("QCD", "Qcd Corp")));
+        Thread first = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                pipeline.getSuggestions("qc");
+            }
+        });
+        first.start();
+        Thread.sleep(50);
+
+        // Act
+        List<Map<String, String>> suggestions = pipeline.getSuggestions("qcd");
+        first.join();
+
+        // Assert
+        assertEquals(Collections.singletonList("QCD"), getSymbols(suggestions));
+        assertEquals(Collections.singletonList("qcd"), this.lookups);
+    }
+
+    public void testSupersededLookupIsCancelled() throws InterruptedException {
+        // Arrange
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final SuggestionPipeline pipeline = new SuggestionPipeline(
+                new SuggestionPipeline.RemoteLookup() {
+                    @Override
+                    public List<Map<String, String>> getSuggestions(String query) {
+                        if (query.equals("qd")) {
+                            started.countDown();
+                            try {
+                                Thread.sleep(10000);
+                            } catch (InterruptedException e) {
+                                interrupted.countDown();
+                            }
+                            return null;
+                        }
+                        return Collections.singletonList(buildSuggestion("QDE", "Qde Corp"));
+                    }
+                });
+        final List<List<Map<String, String>>> firstResult = new ArrayList<>();
+        Thread first = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                firstResult.add(pipeline.getSuggestions("qd"));
+            }
+        });
+        first.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Act
+        List<Map<String, String>> suggestions = pipeline.getSuggestions("qde");
+        first.join(5000);
+
+        // Assert
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(firstResult.get(0).isEmpty());
+        assertEquals(Collections.singletonList("QDE"), getSymbols(suggestions));
+    }
+}
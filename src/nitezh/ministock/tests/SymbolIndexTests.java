@@ -0,0 +1,110 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import nitezh.ministock.utils.SymbolIndex;
+
+
+public class SymbolIndexTests extends TestCase {
+
+    private SymbolIndex index;
+
+    public void setUp() throws IOException {
+        this.index = new SymbolIndex();
+        this.index.load(new StringReader("# comment\n"
+                + "AAPL\tApple Inc.\n"
+                + "AAL\tAmerican Airlines Group Inc.\n"
+                + "A\tAgilent Technologies, Inc.\n"
+                + "BAC\tBank of America Corporation\n"
+                + "^DJI\tDow Jones Industrial Average\n"));
+    }
+
+    public void testSymbolPrefixMatchesWithExactMatchFirst() {
+        // Act
+        List<Map<String, String>> results = this.index.search("a", 10);
+
+        // Assert
+        assertEquals("A", results.get(0).get("symbol"));
+        assertEquals("AAL", results.get(1).get("symbol"));
+        assertEquals("AAPL", results.get(2).get("symbol"));
+        assertEquals("Apple Inc.", results.get(2).get("name"));
+    }
+
+    public void testNameWordsAreSearchable() {
+        // Act
+        List<Map<String, String>> results = this.index.search("amer", 10);
+
+        // Assert
+        assertEquals(2, results.size());
+        assertEquals("BAC", results.get(0).get("symbol"));
+        assertEquals("AAL", results.get(1).get("symbol"));
+    }
+
+    public void testResultsAreLimited() {
+        // Act
+        List<Map<String, String>> results = this.index.search("a", 2);
+
+        // Assert
+        assertEquals(2, results.size());
+        assertTrue(this.index.search("", 10).isEmpty());
+    }
+
+    public void testAddedSymbolsAreFoundAndNamesUpdated() {
+        // Arrange
+        this.index.search("x", 10);
+
+        // Act
+        this.index.add("xom", "Exxon Mobil Corporation");
+        this.index.add("AAPL", "Apple");
+        this.index.add("AAPL", null);
+
+        // Assert
+        assertEquals("XOM", this.index.search("exxon", 10).get(0).get("symbol"));
+        assertEquals("Apple", this.index.search("aapl", 10).get(0).get("name"));
+        assertEquals(6, this.index.size());
+    }
+
+    public void testCommentsWithTabsAreSkipped() throws IOException {
+        // Arrange
+        SymbolIndex index = new SymbolIndex();
+
+        // Act
+        index.load(new StringReader("#SYMBOL\tName\n"
+                + "# exported\t2026-10-16\n"
+                + "MSFT\tMicrosoft Corporation\n"));
+
+        // Assert
+        assertEquals(1, index.size());
+        assertTrue(index.search("#", 10).isEmpty());
+        assertEquals("MSFT", index.search("micro", 10).get(0).get("symbol"));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import nitezh.ministock.domain.SymbolTable;
+
+
+public class SymbolTableTests extends TestCase {
+
+    public void testInternReturnsSameDenseId() {
+        // Arrange
+        SymbolTable symbolTable = SymbolTable.getInstance();
+        int size = symbolTable.size();
+
+        // Act
+        int id = symbolTable.intern("SYMBOLTABLE.TEST");
+        int again = symbolTable.intern("SYMBOLTABLE.TEST");
+
+        // Assert
+        assertEquals(id, again);
+        assertEquals(size, id);
+        assertEquals("SYMBOLTABLE.TEST", symbolTable.getSymbol(id));
+        assertEquals(SymbolTable.NO_ID, symbolTable.getId("SYMBOLTABLE.MISSING"));
+    }
+
+    public void testAliasesResolveBothWays() {
+        // Arrange
+        SymbolTable symbolTable = SymbolTable.getInstance();
+
+        // Act
+        String providerSymbol = symbolTable.getProviderSymbol("^DJI");
+        String canonicalSymbol = symbolTable.getCanonicalSymbol(".IXIC");
+
+        // Assert
+        assertEquals(".DJI", providerSymbol);
+        assertEquals("^IXIC", canonicalSymbol);
+        assertTrue(symbolTable.isProviderAlias(".DJI"));
+        assertFalse(symbolTable.isProviderAlias("^DJI"));
+    }
+
+    public void testSymbolsWithoutAliasAreUnchanged() {
+        // Arrange
+        SymbolTable symbolTable = SymbolTable.getInstance();
+
+        // Act
+        String providerSymbol = symbolTable.getProviderSymbol("^DJIA");
+        String canonicalSymbol = symbolTable.getCanonicalSymbol("AAPL");
+
+        // Assert
+        assertEquals("^DJIA", providerSymbol);
+        assertEquals("AAPL", canonicalSymbol);
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import nitezh.ministock.tests.mocks.MockHttpServer;
+import nitezh.ministock.utils.Cache;
+import nitezh.ministock.utils.CacheIndex;
+import nitezh.ministock.utils.CacheItem;
+import nitezh.ministock.utils.UrlDataTools;
+
+
+public class UrlDataToolsTests extends TestCase {
+
+    private MockHttpServer server;
+    private Cache cache;
+
+    private static byte[] gzip(String data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        gzip.write(data.getBytes());
+        gzip.close();
+        return out.toByteArray();
+    }
+
+    public void setUp() throws IOException {
+        this.server = new MockHttpServer();
+        final CacheIndex index = new CacheIndex();
+        this.cache = new Cache() {
+            @Override
+            protected CacheIndex getIndex() {
+                return index;
+            }
+
+            @Override
+            protected void persistItem(String key, CacheItem item) {
+            }
+
+            @Override
+            protected void removeItems(List<String> keys) {
+            }
+
+            // Keep expired entries, so a background sweep cannot remove them mid-test
+            @Override
+            protected long getStaleRetention() {
+                return 3600 * 1000L;
+            }
+        };
+    }
+
+    public void tearDown() throws IOException {
+        this.server.shutdown();
+        UrlDataTools.setOnRevalidatedListener(null);
+    }
+
+    public void testGzipBodyIsDecoded() throws IOException {
+        // Arrange
+        this.server.enqueue(200, gzip("a,b\nc,d\n"), "Content-Encoding: gzip");
+        String url = this.server.getUrl("/gzip");
+
+        // Act
+        String data = UrlDataTools.getCachedUrlData(url, this.cache, 60);
+
+        // Assert
+        assertEquals("a,b\nc,d\n", data);
+        assertEquals("gzip", this.server.getRequests().get(0).get("accept-encoding"));
+    }
+
+    public void testNotModifiedRefreshesCachedEntry() {
+        // Arrange
+        this.server.enqueue(200, "quotes".getBytes(), "ETag: \"v1\"",
+                "Last-Modified: Sat, 17 Oct 2026 10:00:00 GMT");
+        this.server.enqueue(304, new byte[0], "ETag: \"v1\"");
+        String url = this.server.getUrl("/quotes");
+        UrlDataTools.getCachedUrlData(url, this.cache, 0);
+
+        // Act
+        String data = UrlDataTools.getCachedUrlData(url, this.cache, 60);
+
+        // Assert
+        List<Map<String, String>> requests = this.server.getRequests();
+        assertEquals(2, requests.size());
+        assertEquals("\"v1\"", requests.get(1).get("if-none-match"));
+        assertEquals("Sat, 17 Oct 2026 10:00:00 GMT", requests.get(1).get("if-modified-since"));
+        assertEquals("quotes\n", data);
+        assertEquals("quotes\n", this.cache.get(url));
+    }
+
+    public void testErrorStatusIsNotCached() {
+        // Arrange
+        this.server.enqueue(500, "error".getBytes());
+        String url = this.server.getUrl("/error");
+
+        // Act
+        String data = UrlDataTools.getCachedUrlData(url, this.cache, 60);
+
+        // Assert
+        assertEquals("", data);
+        assertNull(this.cache.getItem(url));
+    }
+
+    public void testStaleEntryIsServedWhileRevalidating() throws InterruptedException {
+        // Arrange
+        this.server.enqueue(200, "old".getBytes());
+        this.server.enqueue(200, "new".getBytes());
+        String url = this.server.getUrl("/stale");
+        UrlDataTools.getCachedUrlData(url, this.cache, 0);
+        final CountDownLatch revalidated = new CountDownLatch(1);
+        UrlDataTools.setOnRevalidatedListener(new UrlDataTools.OnRevalidatedListener() {
+            @Override
+            public void onRevalidated(String url) {
+                revalidated.countDown();
+            }
+        });
+
+        // Act
+        String data = UrlDataTools.getCachedUrlData(url, this.cache, 60, 3600);
+
+        // Assert
+        assertEquals("old\n", data);
+        assertTrue(revalidated.await(5, TimeUnit.SECONDS));
+        assertEquals("new\n", this.cache.get(url));
+    }
+
+    public void testStaleItemKeepsItsExpiry() throws InterruptedException {
+        // Arrange
+        this.server.enqueue(200, "old".getBytes());
+        this.server.enqueue(200, "new".getBytes());
+        String url = this.server.getUrl("/staleitem");
+        UrlDataTools.getCachedUrlData(url, this.cache, 0);
+        long expiry = this.cache.getItem(url).getExpiry();
+        final CountDownLatch revalidated = new CountDownLatch(1);
+        UrlDataTools.setOnRevalidatedListener(new UrlDataTools.OnRevalidatedListener() {
+            @Override
+            public void onRevalidated(String url) {
+                revalidated.countDown();
+            }
+        });
+
+        // Act
+        CacheItem item = UrlDataTools.getCachedUrlItem(url, this.cache, 60, 3600);
+
+        // Assert
+        assertEquals("old\n", item.getValue());
+        assertEquals(expiry, item.getExpiry());
+        assertTrue(revalidated.await(5, TimeUnit.SECONDS));
+    }
+
+    // Starts the callers together and returns what each of them received
+    private List<String> getConcurrently(final String url, int callers)
+            throws InterruptedException {
+        final List<String> results = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    results.add(UrlDataTools.getCachedUrlData(url, cache, 60));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        return results;
+    }
+
+    public void testConcurrentCallersShareOneFetch() throws InterruptedException {
+        // Arrange
+        this.server.setResponseDelay(500);
+        this.server.enqueue(200, "shared".getBytes());
+        this.server.enqueue(200, "second".getBytes());
+        String url = this.server.getUrl("/shared");
+
+        // Act
+        List<String> results = this.getConcurrently(url, 5);
+
+        // Assert
+        assertEquals(Collections.nCopies(5, "shared\n"), results);
+        assertEquals(1, this.server.getRequests().size());
+    }
+
+    public void testFailedFetchIsSharedButNotKept() throws InterruptedException {
+        // Arrange
+        this.server.setResponseDelay(500);
+        this.server.enqueue(500, "error".getBytes());
+        this.server.enqueue(200, "recovered".getBytes());
+        String url = this.server.getUrl("/failed");
+
+        // Act
+        List<String> results = this.getConcurrently(url, 3);
+        String retried = UrlDataTools.getCachedUrlData(url, this.cache, 60);
+
+        // Assert
+        assertEquals(Collections.nCopies(3, ""), results);
+        assertEquals("recovered\n", retried);
+        assertEquals(2, this.server.getRequests().size());
+    }
+}
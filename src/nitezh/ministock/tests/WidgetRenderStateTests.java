@@ -0,0 +1,104 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import nitezh.ministock.activities.widget.WidgetRenderState;
+
+
+public class WidgetRenderStateTests extends TestCase {
+
+    private static WidgetRenderState buildState(String price, int color) {
+        WidgetRenderState state = new WidgetRenderState("1/false/transparent/4/false");
+        state.setVisibility(100, 0);
+        state.setText(1, "AAPL");
+        state.setText(2, price);
+        state.setColor(2, color);
+        return state;
+    }
+
+    private static List<String> apply(WidgetRenderState state, WidgetRenderState previous) {
+        final List<String> actions = new ArrayList<>();
+        state.applyChanges(previous, new WidgetRenderState.Target() {
+            @Override
+            public void setText(int viewId, String text) {
+                actions.add("text " + viewId + " " + text);
+            }
+
+            @Override
+            public void setColor(int viewId, int color) {
+                actions.add("color " + viewId + " " + color);
+            }
+
+            @Override
+            public void setVisibility(int viewId, int visibility) {
+                actions.add("visibility " + viewId + " " + visibility);
+            }
+        });
+        return actions;
+    }
+
+    public void testAllCellsAreSentWithoutPreviousState() {
+        // Arrange
+        WidgetRenderState state = buildState("10.00", 1);
+
+        // Act
+        List<String> actions = apply(state, null);
+
+        // Assert
+        assertEquals(4, actions.size());
+    }
+
+    public void testOnlyChangedCellsAreSent() {
+        // Arrange
+        WidgetRenderState previous = buildState("10.00", 1);
+        WidgetRenderState state = buildState("10.50", 1);
+
+        // Act
+        List<String> actions = apply(state, previous);
+
+        // Assert
+        assertEquals(1, actions.size());
+        assertEquals("text 2 10.50", actions.get(0));
+        assertTrue(state.hasSameLayout(previous));
+    }
+
+    public void testDifferentLayoutIsDetected() {
+        // Arrange
+        WidgetRenderState previous = new WidgetRenderState("1/false/transparent/4/false");
+        WidgetRenderState state = new WidgetRenderState("3/false/transparent/10/false");
+
+        // Act
+        boolean sameLayout = state.hasSameLayout(previous);
+
+        // Assert
+        assertFalse(sameLayout);
+        assertFalse(state.hasSameLayout(null));
+    }
+}
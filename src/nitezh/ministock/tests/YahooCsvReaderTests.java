@@ -0,0 +1,79 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import nitezh.ministock.dataaccess.YahooCsvReader;
+
+
+public class YahooCsvReaderTests extends TestCase {
+
+    public void testReadsQuotedFields() {
+        // Arrange
+        YahooCsvReader reader = new YahooCsvReader(
+                "\"AAPL\",\"10/16/2026\",\"4:00pm\",118.50,-0.73,\"-0.61%\",\"NMS\",12345,\"Apple Inc.\"\n");
+
+        // Act
+        boolean hasRow = reader.nextRow();
+
+        // Assert
+        assertTrue(hasRow);
+        assertEquals("AAPL", reader.getField(YahooCsvReader.FIELD_SYMBOL));
+        assertEquals("118.50", reader.getField(YahooCsvReader.FIELD_PRICE));
+        assertEquals("-0.73", reader.getField(YahooCsvReader.FIELD_CHANGE));
+        assertEquals("-0.61%", reader.getField(YahooCsvReader.FIELD_PERCENT));
+        assertEquals("NMS", reader.getField(YahooCsvReader.FIELD_EXCHANGE));
+        assertEquals("12345", reader.getField(YahooCsvReader.FIELD_VOLUME));
+        assertEquals("Apple Inc.", reader.getField(YahooCsvReader.FIELD_NAME));
+        assertFalse(reader.nextRow());
+    }
+
+    public void testNameKeepsCommas() {
+        // Arrange
+        YahooCsvReader reader = new YahooCsvReader(
+                "\"BRK-B\",\"N/A\",\"N/A\",140.10,0.20,\"+0.14%\",\"NYQ\",100,\"Berkshire Hathaway, Inc.\"");
+
+        // Act
+        reader.nextRow();
+
+        // Assert
+        assertEquals("Berkshire Hathaway, Inc.", reader.getField(YahooCsvReader.FIELD_NAME));
+    }
+
+    public void testSkipsIncompleteRows() {
+        // Arrange
+        YahooCsvReader reader = new YahooCsvReader(
+                "Missing Format Variable.\n\n\"GOOG\",\"N/A\",\"N/A\",1,2,\"3%\",\"NMS\",4,\"Alphabet Inc.\"\n");
+
+        // Act
+        boolean hasRow = reader.nextRow();
+
+        // Assert
+        assertTrue(hasRow);
+        assertEquals("GOOG", reader.getField(YahooCsvReader.FIELD_SYMBOL));
+        assertFalse(reader.nextRow());
+    }
+}
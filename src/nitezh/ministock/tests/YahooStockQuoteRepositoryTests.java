@@ -30,6 +30,7 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -38,6 +39,9 @@ import nitezh.ministock.dataaccess.FxChangeRepository;
 import nitezh.ministock.dataaccess.YahooStockQuoteRepository;
 import nitezh.ministock.domain.StockQuote;
 import nitezh.ministock.tests.mocks.MockCache;
+import nitezh.ministock.utils.HttpTransport;
+import nitezh.ministock.utils.UrlConnectionTransport;
+import nitezh.ministock.utils.UrlDataTools;
 
 
 public class YahooStockQuoteRepositoryTests extends TestCase {
@@ -49,6 +53,59 @@ public class YahooStockQuoteRepositoryTests extends TestCase {
         this.yahooRepository = new YahooStockQuoteRepository(fxRepository);
     }
 
+    public void tearDown() {
+        UrlDataTools.setTransport(new UrlConnectionTransport());
+    }
+
+    private static String buildRow(String symbol) {
+        return String.format("\"%s\",\"10/16/2026\",\"4:00pm\",10.00,0.10,\"+1.00%%\",\"NMS\",100,"
+                + "\"%s Inc.\"\n", symbol, symbol);
+    }
+
+    public void testFailedChunkKeepsOtherChunks() {
+        // Arrange
+        UrlDataTools.setTransport(new HttpTransport() {
+            @Override
+            public Response get(String url, String etag, String lastModified) throws IOException {
+                if (url.contains("CCC")) {
+                    throw new IOException("Chunk failed");
+                }
+                return new Response(200, buildRow("AAA") + buildRow("BBB"), null, null);
+            }
+        });
+        YahooStockQuoteRepository repository = new YahooStockQuoteRepository(
+                new FxChangeRepository(), 2);
+
+        // Act
+        HashMap<String, StockQuote> quotes = repository.getQuotes(new MockCache(),
+                Arrays.asList("AAA", "BBB", "CCC", "DDD"));
+
+        // Assert
+        assertNotNull(quotes);
+        assertEquals(2, quotes.size());
+        assertEquals(10.0, quotes.get("AAA").getPriceValue());
+        assertEquals(10.0, quotes.get("BBB").getPriceValue());
+    }
+
+    public void testAllChunksFailedIsNull() {
+        // Arrange
+        UrlDataTools.setTransport(new HttpTransport() {
+            @Override
+            public Response get(String url, String etag, String lastModified) throws IOException {
+                return new Response(500, "", null, null);
+            }
+        });
+        YahooStockQuoteRepository repository = new YahooStockQuoteRepository(
+                new FxChangeRepository(), 2);
+
+        // Act
+        HashMap<String, StockQuote> quotes = repository.getQuotes(new MockCache(),
+                Arrays.asList("AAA", "BBB", "CCC"));
+
+        // Assert
+        assertNull(quotes);
+    }
+
     public void testRetrieveQuotesAsJson() {
         // Arrange
         List<String> symbols = Arrays.asList("AAPL", "GOOG");
@@ -0,0 +1,79 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+
+
+// Times a call in a loop on a desktop JVM and reports the fastest round and the bytes allocated per call
+public class Benchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+    // Results are stored here so the JIT cannot drop the calls being measured
+    public static volatile Object mSink;
+
+    private Benchmark() {
+    }
+
+    public static void run(String name, int callsPerRound, Runnable call) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            runRound(callsPerRound, call);
+        }
+
+        long bestNanos = Long.MAX_VALUE;
+        long startBytes = getAllocatedBytes();
+        for (int round = 0; round < ROUNDS; round++) {
+            bestNanos = Math.min(bestNanos, runRound(callsPerRound, call));
+        }
+        long bytes = getAllocatedBytes() - startBytes;
+
+        double calls = (double) callsPerRound;
+        String allocated = startBytes < 0 ? "n/a" : String.format(Locale.US, "%.0f B", bytes / (calls * ROUNDS));
+        System.out.println(String.format(Locale.US, "%-36s %12.1f ns %14s", name, bestNanos / calls, allocated));
+    }
+
+    private static long runRound(int callsPerRound, Runnable call) {
+        long start = System.nanoTime();
+        for (int i = 0; i < callsPerRound; i++) {
+            call.run();
+        }
+        return System.nanoTime() - start;
+    }
+
+    // Uses the HotSpot thread allocation counter when present, returns -1 elsewhere
+    private static long getAllocatedBytes() {
+        try {
+            Object threadBean = Class.forName("java.lang.management.ManagementFactory")
+                    .getMethod("getThreadMXBean").invoke(null);
+            Method method = Class.forName("com.sun.management.ThreadMXBean")
+                    .getMethod("getThreadAllocatedBytes", long.class);
+            return (Long) method.invoke(threadBean, Thread.currentThread().getId());
+        } catch (Exception ignored) {
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests.benchmarks;
+
+import nitezh.ministock.utils.DecimalFormatter;
+import nitezh.ministock.utils.NumberTools;
+
+
+// Compares String.format with DecimalFormatter for the quote cells, run with main on a desktop JVM
+public class DecimalFormatterBenchmark {
+
+    private static final double[] VALUES = {
+            118.5, -0.73, 0.0512, 26543.33, 1.1725, -120.5, 9.99999, 1234.5
+    };
+    private static final Integer MAX_PRECISION = 4;
+
+    // The getTrimmedDouble NumberTools used before DecimalFormatter
+    private static String getTrimmedDoubleWithFormat(double number, int digits, Integer maxPrecision) {
+        String numberAsString = Double.toString(number);
+        int decimalPos = numberAsString.indexOf(".");
+        if (decimalPos == -1) {
+            return numberAsString;
+        }
+        if (digits < decimalPos) {
+            return String.format("%.0f", number);
+        }
+        if ((Math.abs(number) >= 10 || maxPrecision == null) && (numberAsString.length() - 1 < digits)) {
+            return String.format("%.2f", number);
+        }
+        int precision = digits - decimalPos;
+        if (Math.abs(number) >= 10 || maxPrecision == null) {
+            precision = Math.min(precision, 2);
+        }
+        if (maxPrecision == null)
+            maxPrecision = precision;
+        return String.format("%." + Math.min(precision, maxPrecision) + "f", number);
+    }
+
+    public static void main(String[] args) {
+        System.out.println(VALUES.length + " values per call, each trimmed to 6 digits and to 5 digits");
+        Benchmark.run("getTrimmedDouble, String.format", 20000, new Runnable() {
+            @Override
+            public void run() {
+                int length = 0;
+                for (double value : VALUES) {
+                    length += getTrimmedDoubleWithFormat(value, 6, MAX_PRECISION).length();
+                    length += getTrimmedDoubleWithFormat(value, 5, null).length();
+                }
+                Benchmark.mSink = length;
+            }
+        });
+        Benchmark.run("getTrimmedDouble, DecimalFormatter", 20000, new Runnable() {
+            @Override
+            public void run() {
+                int length = 0;
+                for (double value : VALUES) {
+                    length += NumberTools.getTrimmedDouble(value, 6, MAX_PRECISION).length();
+                    length += NumberTools.getTrimmedDouble(value, 5).length();
+                }
+                Benchmark.mSink = length;
+            }
+        });
+        Benchmark.run("2 decimals, String.format", 20000, new Runnable() {
+            @Override
+            public void run() {
+                int length = 0;
+                for (double value : VALUES) {
+                    length += String.format("%.2f", value).length();
+                }
+                Benchmark.mSink = length;
+            }
+        });
+        Benchmark.run("2 decimals, DecimalFormatter", 20000, new Runnable() {
+            @Override
+            public void run() {
+                int length = 0;
+                for (double value : VALUES) {
+                    length += DecimalFormatter.format(value, 2).length();
+                }
+                Benchmark.mSink = length;
+            }
+        });
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests.benchmarks;
+
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+
+import nitezh.ministock.utils.NumberTools;
+
+
+// Compares the NumberFormat parse with NumberTools.parseDouble, run with main on a desktop JVM
+public class NumberToolsBenchmark {
+
+    // Provider values, the last three take the locale-aware fallback
+    private static final String[] INPUTS = {
+            "118.50", "-0.73", "12345678", "0.0512", "26543.33", "1,234.50", "-0.61%", "+1.25"
+    };
+    private static final Double DEFAULT_VALUE = 0d;
+
+    // The parse NumberTools used before the ASCII fast path
+    private static Double parseWithNumberFormat(String value, Double defaultValue) {
+        try {
+            char separator = new DecimalFormatSymbols().getDecimalSeparator();
+            value = value.replace('.', separator);
+            return NumberFormat.getInstance().parse(value).doubleValue();
+        } catch (Exception e) {
+            return defaultValue;
+        }
+    }
+
+    public static void main(String[] args) {
+        System.out.println(INPUTS.length + " inputs per call, 3 on the fallback path");
+        Benchmark.run("NumberFormat parse", 20000, new Runnable() {
+            @Override
+            public void run() {
+                double total = 0;
+                for (String input : INPUTS) {
+                    total += parseWithNumberFormat(input, DEFAULT_VALUE);
+                }
+                Benchmark.mSink = total;
+            }
+        });
+        Benchmark.run("parseDouble, Double", 20000, new Runnable() {
+            @Override
+            public void run() {
+                double total = 0;
+                for (String input : INPUTS) {
+                    total += NumberTools.parseDouble(input, DEFAULT_VALUE);
+                }
+                Benchmark.mSink = total;
+            }
+        });
+        Benchmark.run("parseDouble, primitive", 20000, new Runnable() {
+            @Override
+            public void run() {
+                double total = 0;
+                for (String input : INPUTS) {
+                    total += NumberTools.parseDouble(input, 0.0);
+                }
+                Benchmark.mSink = total;
+            }
+        });
+    }
+}
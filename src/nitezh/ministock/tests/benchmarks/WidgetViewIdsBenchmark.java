@@ -0,0 +1,78 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests.benchmarks;
+
+import nitezh.ministock.R;
+import nitezh.ministock.activities.widget.WidgetViewIds;
+
+
+// Compares reflective R.id lookups with WidgetViewIds for one render, run with main on a desktop JVM
+public class WidgetViewIdsBenchmark {
+
+    // The lookup WidgetView used before WidgetViewIds
+    private static int getFieldWithReflection(String name) {
+        try {
+            return R.id.class.getField(name).getInt(R.class);
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    public static void main(String[] args) {
+        System.out.println("Per render: every line, and every cell looked up twice");
+        Benchmark.run("reflection", 2000, new Runnable() {
+            @Override
+            public void run() {
+                int total = 0;
+                for (int i = 0; i <= WidgetViewIds.MAX_ROWS; i++) {
+                    total += getFieldWithReflection("line" + i);
+                }
+                for (int row = 1; row <= WidgetViewIds.MAX_ROWS; row++) {
+                    for (int col = 1; col <= WidgetViewIds.MAX_COLUMNS; col++) {
+                        total += getFieldWithReflection("text" + row + col);
+                        total += getFieldWithReflection("text" + row + col);
+                    }
+                }
+                Benchmark.mSink = total;
+            }
+        });
+        Benchmark.run("WidgetViewIds", 2000, new Runnable() {
+            @Override
+            public void run() {
+                int total = 0;
+                for (int i = 0; i <= WidgetViewIds.MAX_ROWS; i++) {
+                    total += WidgetViewIds.getLineId(i);
+                }
+                for (int row = 1; row <= WidgetViewIds.MAX_ROWS; row++) {
+                    for (int col = 1; col <= WidgetViewIds.MAX_COLUMNS; col++) {
+                        total += WidgetViewIds.getTextId(row, col);
+                        total += WidgetViewIds.getTextId(row, col);
+                    }
+                }
+                Benchmark.mSink = total;
+            }
+        });
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import nitezh.ministock.dataaccess.YahooCsvReader;
+import nitezh.ministock.domain.StockQuote;
+
+
+// Compares the split and JSON csv parse with YahooCsvReader, run with main on a desktop JVM
+public class YahooCsvReaderBenchmark {
+
+    private static final int ROWS = 1000;
+    private static final int COUNT_FIELDS = 9;
+
+    private static String buildCsv(List<String> symbols) {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < ROWS; i++) {
+            String symbol = "SYM" + i;
+            symbols.add(symbol);
+            csv.append('"').append(symbol).append("\",\"10/16/2026\",\"4:00pm\",")
+                    .append(100 + i % 50).append(".25,-0.73,\"-0.61%\",\"NMS\",")
+                    .append(12345 + i).append(",\"Company ").append(i).append(", Inc.\"\n");
+        }
+        return csv.toString();
+    }
+
+    // The parse YahooStockQuoteRepository used before YahooCsvReader
+    private static JSONArray parseWithSplit(String csvText, List<String> symbols) throws JSONException {
+        JSONArray quotes = new JSONArray();
+        for (String line : csvText.split("\n")) {
+            String[] values = line.replace("\"", "").split(",", COUNT_FIELDS);
+            if (values.length < COUNT_FIELDS || !symbols.contains(values[0])) {
+                continue;
+            }
+
+            JSONObject data = new JSONObject();
+            data.put("symbol", values[0]);
+            data.put("price", values[3]);
+            data.put("change", values[4]);
+            data.put("percent", values[5]);
+            data.put("exchange", values[6]);
+            data.put("volume", values[7]);
+            data.put("name", values[8]);
+            quotes.put(data);
+        }
+        return quotes;
+    }
+
+    private static List<StockQuote> buildQuotesWithSplit(String csvText, List<String> symbols) throws JSONException {
+        JSONArray jsonArray = parseWithSplit(csvText, symbols);
+        List<StockQuote> quotes = new ArrayList<>();
+        for (int i = 0; i < jsonArray.length(); i++) {
+            JSONObject quoteJson = jsonArray.getJSONObject(i);
+            quotes.add(new StockQuote(
+                    quoteJson.optString("symbol"),
+                    quoteJson.optString("price"),
+                    quoteJson.optString("change"),
+                    quoteJson.optString("percent"),
+                    quoteJson.optString("exchange"),
+                    quoteJson.optString("volume"),
+                    quoteJson.optString("name"),
+                    null));
+        }
+        return quotes;
+    }
+
+    private static List<StockQuote> buildQuotesWithReader(String csvText, Set<String> symbols) {
+        List<StockQuote> quotes = new ArrayList<>();
+        YahooCsvReader reader = new YahooCsvReader(csvText);
+        while (reader.nextRow()) {
+            String symbol = reader.getField(YahooCsvReader.FIELD_SYMBOL);
+            if (!symbols.contains(symbol)) {
+                continue;
+            }
+            quotes.add(new StockQuote(
+                    symbol,
+                    reader.getField(YahooCsvReader.FIELD_PRICE),
+                    reader.getField(YahooCsvReader.FIELD_CHANGE),
+                    reader.getField(YahooCsvReader.FIELD_PERCENT),
+                    reader.getField(YahooCsvReader.FIELD_EXCHANGE),
+                    reader.getField(YahooCsvReader.FIELD_VOLUME),
+                    reader.getField(YahooCsvReader.FIELD_NAME),
+                    null));
+        }
+        return quotes;
+    }
+
+    private static int readFields(String csvText, Set<String> symbols) {
+        int rows = 0;
+        YahooCsvReader reader = new YahooCsvReader(csvText);
+        while (reader.nextRow()) {
+            if (symbols.contains(reader.getField(YahooCsvReader.FIELD_SYMBOL))) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    public static void main(String[] args) {
+        final List<String> symbolList = new ArrayList<>();
+        final String csv = buildCsv(symbolList);
+        final Set<String> symbolSet = new HashSet<>(symbolList);
+
+        System.out.println(ROWS + " rows per call");
+        Benchmark.run("csv -> fields, split and JSON", 20, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Benchmark.mSink = parseWithSplit(csv, symbolList);
+                } catch (JSONException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        Benchmark.run("csv -> fields, YahooCsvReader", 20, new Runnable() {
+            @Override
+            public void run() {
+                Benchmark.mSink = readFields(csv, symbolSet);
+            }
+        });
+        Benchmark.run("csv -> quotes, split and JSON", 20, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Benchmark.mSink = buildQuotesWithSplit(csv, symbolList);
+                } catch (JSONException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        Benchmark.run("csv -> quotes, YahooCsvReader", 20, new Runnable() {
+            @Override
+            public void run() {
+                Benchmark.mSink = buildQuotesWithReader(csv, symbolSet);
+            }
+        });
+    }
+}
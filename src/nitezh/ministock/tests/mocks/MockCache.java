@@ -24,19 +24,25 @@
 
 package nitezh.ministock.tests.mocks;
 
-import org.json.JSONObject;
+import java.util.List;
 
 import nitezh.ministock.utils.Cache;
+import nitezh.ministock.utils.CacheIndex;
+import nitezh.ministock.utils.CacheItem;
 
 
 public class MockCache extends Cache {
 
     @Override
-    protected JSONObject loadCache() {
-        return new JSONObject();
+    protected CacheIndex getIndex() {
+        return new CacheIndex();
     }
 
     @Override
-    protected void persistCache(JSONObject cache) {
+    protected void persistItem(String key, CacheItem item) {
+    }
+
+    @Override
+    protected void removeItems(List<String> keys) {
     }
 }
@@ -0,0 +1,162 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests.mocks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+
+// Minimal local HTTP/1.1 server that replays queued responses and records request headers
+public class MockHttpServer {
+
+    private final ServerSocket serverSocket;
+    private final LinkedList<byte[]> responses = new LinkedList<>();
+    private final List<Map<String, String>> requests = new ArrayList<>();
+    private volatile long responseDelay = 0;
+
+    public MockHttpServer() throws IOException {
+        this.serverSocket = new ServerSocket(0, 10, InetAddress.getByName("127.0.0.1"));
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        }, "MockHttpServer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            if (c != '\r') {
+                builder.append((char) c);
+            }
+        }
+        return c == -1 && builder.length() == 0 ? null : builder.toString();
+    }
+
+    public String getUrl(String path) {
+        return "http://127.0.0.1:" + this.serverSocket.getLocalPort() + path;
+    }
+
+    public synchronized void enqueue(int status, byte[] body, String... headers) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StringBuilder head = new StringBuilder();
+        head.append("HTTP/1.1 ").append(status).append(" Mock\r\n");
+        for (String header : headers) {
+            head.append(header).append("\r\n");
+        }
+        head.append("Content-Length: ").append(body.length).append("\r\n\r\n");
+        byte[] headBytes = head.toString().getBytes();
+        out.write(headBytes, 0, headBytes.length);
+        out.write(body, 0, body.length);
+        this.responses.add(out.toByteArray());
+    }
+
+    // Holds every response back, so concurrent requests overlap
+    public void setResponseDelay(long responseDelay) {
+        this.responseDelay = responseDelay;
+    }
+
+    public synchronized List<Map<String, String>> getRequests() {
+        return new ArrayList<>(this.requests);
+    }
+
+    public void shutdown() throws IOException {
+        this.serverSocket.close();
+    }
+
+    private synchronized byte[] record(Map<String, String> headers) {
+        this.requests.add(headers);
+        return this.responses.isEmpty() ? null : this.responses.removeFirst();
+    }
+
+    private void acceptConnections() {
+        while (!this.serverSocket.isClosed()) {
+            try {
+                final Socket socket = this.serverSocket.accept();
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                }, "MockHttpConnection");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            // Keep answering on the same socket so clients can reuse the connection
+            String requestLine;
+            while ((requestLine = readLine(in)) != null) {
+                if (requestLine.isEmpty()) {
+                    continue;
+                }
+                Map<String, String> headers = new HashMap<>();
+                String line;
+                while ((line = readLine(in)) != null && !line.isEmpty()) {
+                    int colon = line.indexOf(':');
+                    headers.put(line.substring(0, colon).trim().toLowerCase(),
+                            line.substring(colon + 1).trim());
+                }
+                byte[] response = record(headers);
+                if (response == null) {
+                    break;
+                }
+                if (this.responseDelay > 0) {
+                    Thread.sleep(this.responseDelay);
+                }
+                out.write(response);
+                out.flush();
+            }
+        } catch (IOException ignored) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
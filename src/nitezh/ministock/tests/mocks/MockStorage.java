@@ -76,6 +76,11 @@ public class MockStorage implements Storage {
         return this;
     }
 
+    @Override
+    public Storage remove(String key) {
+        return this;
+    }
+
     @Override
     public void apply() {
     }
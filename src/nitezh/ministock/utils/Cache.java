@@ -25,42 +25,94 @@
 package nitezh.ministock.utils;
 
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 
 public abstract class Cache {
 
+    private static final ExecutorService sweepExecutor = Executors.newSingleThreadExecutor(
+            new DaemonThreadFactory("CacheSweep"));
+
     public void put(String key, String data, Integer ttl) {
-        JSONObject item = new JSONObject();
-        try {
-            item.put("value", data);
-
-            Calendar calendar = Calendar.getInstance();
-            calendar.add(Calendar.SECOND, ttl);
-            item.put("expiry", calendar.getTimeInMillis());
-
-            JSONObject cache = loadCache();
-            cache.put(key, item);
-            persistCache(cache);
-        } catch (JSONException ignored) {
+        put(key, data, ttl, null, null);
+    }
+
+    public void put(String key, String data, Integer ttl, String etag, String lastModified) {
+        long now = System.currentTimeMillis();
+        CacheItem item = new CacheItem(data, now + (ttl != null ? ttl : 0) * 1000L,
+                etag, lastModified);
+
+        // The index and its backing store change together, so an evicted entry is never written back
+        CacheIndex index = getIndex();
+        boolean isSweepDue;
+        synchronized (index) {
+            List<String> evicted = index.put(key, item);
+            persistItem(key, item);
+            if (!evicted.isEmpty()) {
+                removeItems(evicted);
+            }
+            isSweepDue = index.claimSweep(now);
+        }
+        if (isSweepDue) {
+            scheduleSweep();
         }
     }
 
     public String get(String key) {
-        try {
-            JSONObject item = loadCache().getJSONObject(key);
-            if (item.getLong("expiry") > Calendar.getInstance().getTimeInMillis()) {
-                return item.getString("value");
+        CacheItem item = getIndex().get(key, System.currentTimeMillis());
+        return item != null ? item.getValue() : null;
+    }
+
+    // Returns the stored entry even when expired, so it can be revalidated
+    public CacheItem getItem(String key) {
+        return getIndex().peek(key);
+    }
+
+    public void sweepExpired() {
+        CacheIndex index = getIndex();
+        synchronized (index) {
+            List<String> expired = index.sweepExpired(
+                    System.currentTimeMillis() - getStaleRetention());
+            if (!expired.isEmpty()) {
+                removeItems(expired);
             }
-        } catch (JSONException ignored) {
         }
-        return null;
     }
 
-    protected abstract JSONObject loadCache();
+    private void scheduleSweep() {
+        sweepExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                sweepExpired();
+            }
+        });
+    }
+
+    public long getHitCount() {
+        return getIndex().getHitCount();
+    }
+
+    public long getMissCount() {
+        return getIndex().getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return getIndex().getEvictionCount();
+    }
+
+    // How long expired entries are kept around for stale reads and revalidation
+    protected long getStaleRetention() {
+        return 0;
+    }
+
+    // The in-memory index, loaded from the backing store at most once
+    protected abstract CacheIndex getIndex();
+
+    // Persist a single entry without rewriting the rest of the cache
+    protected abstract void persistItem(String key, CacheItem item);
 
-    protected abstract void persistCache(JSONObject cache);
+    // Remove evicted or expired entries from the backing store
+    protected abstract void removeItems(List<String> keys);
 }
@@ -0,0 +1,175 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.utils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+public class CacheIndex {
+
+    private static final long SWEEP_INTERVAL = 10 * 60 * 1000L;
+
+    // Access ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, CacheItem> items = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxEntries;
+    private final long maxBytes;
+    private long byteCount = 0;
+    private long lastSweep = 0;
+    private boolean loaded = false;
+
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+    private long expiredCount = 0;
+
+    public CacheIndex() {
+        this(0, 0);
+    }
+
+    // A limit of 0 means that dimension is unbounded
+    public CacheIndex(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    private static long sizeOf(String key, CacheItem item) {
+        String value = item.getValue();
+        return 2L * (key.length() + (value != null ? value.length() : 0));
+    }
+
+    public synchronized CacheItem get(String key, long now) {
+        CacheItem item = this.items.get(key);
+        if (item == null || item.isExpired(now)) {
+            this.missCount++;
+            return null;
+        }
+        this.hitCount++;
+        return item;
+    }
+
+    // Returns the entry even if expired, without touching the statistics
+    public synchronized CacheItem peek(String key) {
+        return this.items.get(key);
+    }
+
+    // Returns the keys evicted to make room for the new item
+    public synchronized List<String> put(String key, CacheItem item) {
+        this.add(key, item);
+
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, CacheItem>> iterator = this.items.entrySet().iterator();
+        while (this.isOverBudget() && iterator.hasNext()) {
+            Map.Entry<String, CacheItem> eldest = iterator.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            this.byteCount -= sizeOf(eldest.getKey(), eldest.getValue());
+            iterator.remove();
+            evicted.add(eldest.getKey());
+            this.evictionCount++;
+        }
+        return evicted;
+    }
+
+    // Adds an item read back from storage, without touching the counters
+    public synchronized void load(String key, CacheItem item) {
+        this.add(key, item);
+    }
+
+    private void add(String key, CacheItem item) {
+        CacheItem previous = this.items.put(key, item);
+        if (previous != null) {
+            this.byteCount -= sizeOf(key, previous);
+        }
+        this.byteCount += sizeOf(key, item);
+    }
+
+    private boolean isOverBudget() {
+        return (this.maxEntries > 0 && this.items.size() > this.maxEntries)
+                || (this.maxBytes > 0 && this.byteCount > this.maxBytes);
+    }
+
+    // Returns true only the first time, so the backing store is read into the index once
+    public synchronized boolean claimLoad() {
+        if (this.loaded) {
+            return false;
+        }
+        this.loaded = true;
+        return true;
+    }
+
+    // Returns true at most once per sweep interval, so only one sweep gets scheduled
+    public synchronized boolean claimSweep(long now) {
+        if (now - this.lastSweep < SWEEP_INTERVAL) {
+            return false;
+        }
+        this.lastSweep = now;
+        return true;
+    }
+
+    // Returns the keys of the expired entries that were removed
+    public synchronized List<String> sweepExpired(long now) {
+        List<String> expired = new ArrayList<>();
+        Iterator<Map.Entry<String, CacheItem>> iterator = this.items.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, CacheItem> entry = iterator.next();
+            if (entry.getValue().isExpired(now)) {
+                this.byteCount -= sizeOf(entry.getKey(), entry.getValue());
+                iterator.remove();
+                expired.add(entry.getKey());
+                this.expiredCount++;
+            }
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return this.items.size();
+    }
+
+    public synchronized long getByteCount() {
+        return this.byteCount;
+    }
+
+    public synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return this.evictionCount;
+    }
+
+    public synchronized long getExpiredCount() {
+        return this.expiredCount;
+    }
+}
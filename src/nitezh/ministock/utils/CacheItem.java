@@ -0,0 +1,91 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.utils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+
+public class CacheItem {
+
+    private final String value;
+    private final long expiry;
+    // Validators from the response, used for conditional revalidation
+    private final String etag;
+    private final String lastModified;
+
+    public CacheItem(String value, long expiry) {
+        this(value, expiry, null, null);
+    }
+
+    public CacheItem(String value, long expiry, String etag, String lastModified) {
+        this.value = value;
+        this.expiry = expiry;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    public static CacheItem fromJson(String rawJson) {
+        try {
+            JSONObject json = new JSONObject(rawJson);
+            return new CacheItem(json.getString("value"), json.getLong("expiry"),
+                    json.optString("etag", null), json.optString("lastModified", null));
+        } catch (JSONException ignored) {
+        }
+        return null;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public long getExpiry() {
+        return expiry;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public boolean isExpired(long now) {
+        return this.expiry <= now;
+    }
+
+    public String toJson() {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("value", this.value);
+            json.put("expiry", this.expiry);
+            json.putOpt("etag", this.etag);
+            json.putOpt("lastModified", this.lastModified);
+        } catch (JSONException ignored) {
+        }
+        return json.toString();
+    }
+}
@@ -24,19 +24,24 @@
 
 package nitezh.ministock.utils;
 
-import nitezh.ministock.R;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
-public class ReflectionTools {
+// Background workers must never keep the process alive on their own
+public class DaemonThreadFactory implements ThreadFactory {
 
-    private ReflectionTools() {
+    private final String name;
+    private final AtomicInteger count = new AtomicInteger();
+
+    public DaemonThreadFactory(String name) {
+        this.name = name;
     }
-    
-    public static int getField(String name) {
-        try {
-            return R.id.class.getField(name).getInt(R.class);
-        } catch (Exception e) {
-            return 0;
-        }
+
+    @Override
+    public Thread newThread(@SuppressWarnings("NullableProblems") Runnable runnable) {
+        Thread thread = new Thread(runnable, this.name + "-" + this.count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
     }
 }
@@ -0,0 +1,174 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.utils;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+
+// Equivalent of String.format("%.Nf") without building a Formatter for every call
+public class DecimalFormatter {
+
+    // Large enough for any finite double with a few decimals
+    private static final int MAX_LENGTH = 400;
+
+    private static final ThreadLocal<State> mState = new ThreadLocal<State>() {
+        @Override
+        protected State initialValue() {
+            return new State();
+        }
+    };
+
+    private DecimalFormatter() {
+    }
+
+    public static String format(double value, int decimals) {
+        return format(Double.toString(value), value, decimals);
+    }
+
+    // Formats using the digits of Double.toString(value), for callers that already have them
+    public static String format(String valueAsString, double value, int decimals) {
+        State state = mState.get();
+        StringBuilder builder = state.builder;
+        builder.setLength(0);
+        if (!append(builder, state, valueAsString, value, decimals)) {
+            return String.format("%." + decimals + "f", value);
+        }
+        return builder.toString();
+    }
+
+    public static void append(StringBuilder builder, double value, int decimals) {
+        if (!append(builder, mState.get(), Double.toString(value), value, decimals)) {
+            builder.append(String.format("%." + decimals + "f", value));
+        }
+    }
+
+    // Rounds half up on the shortest decimal digits, as java.util.Formatter does
+    private static boolean append(StringBuilder builder, State state, String valueAsString,
+                                  double value, int decimals) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || decimals < 0) {
+            return false;
+        }
+        state.updateLocale();
+        if (state.zeroDigit != '0') {
+            return false;
+        }
+
+        // Split "[-]d.dddE[-]n" into its digits and the position of the decimal point
+        char[] digits = state.digits;
+        int digitCount = 0;
+        int pointPos = -1;
+        int exponent = 0;
+        int length = valueAsString.length();
+        for (int i = 0; i < length; i++) {
+            char c = valueAsString.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits[digitCount++] = c;
+            } else if (c == '.') {
+                pointPos = digitCount;
+            } else if (c == 'E') {
+                exponent = parseExponent(valueAsString, i + 1);
+                break;
+            } else if (c != '-') {
+                return false;
+            }
+        }
+        if (pointPos < 0) {
+            pointPos = digitCount;
+        }
+        pointPos += exponent;
+
+        // Output covers at least one integer digit, plus the requested decimals
+        int start = Math.min(0, pointPos - 1);
+        int end = pointPos + decimals;
+        int outLength = end - start;
+        if (outLength + 1 > MAX_LENGTH) {
+            return false;
+        }
+        char[] out = state.out;
+        for (int k = start; k < end; k++) {
+            out[k - start + 1] = k >= 0 && k < digitCount ? digits[k] : '0';
+        }
+
+        int first = 1;
+        if (end >= 0 && end < digitCount && digits[end] >= '5') {
+            int i = outLength;
+            while (i >= 1 && out[i] == '9') {
+                out[i] = '0';
+                i--;
+            }
+            if (i >= 1) {
+                out[i]++;
+            } else {
+                out[0] = '1';
+                first = 0;
+            }
+        }
+
+        // Drop leading zeros of the integer part, keeping one before the point
+        int integerEnd = outLength - decimals + 1;
+        while (first < integerEnd - 1 && out[first] == '0') {
+            first++;
+        }
+
+        if (value < 0 || (value == 0 && 1 / value < 0)) {
+            builder.append('-');
+        }
+        builder.append(out, first, integerEnd - first);
+        if (decimals > 0) {
+            builder.append(state.separator);
+            builder.append(out, integerEnd, decimals);
+        }
+        return true;
+    }
+
+    private static int parseExponent(String value, int start) {
+        boolean negative = value.charAt(start) == '-';
+        int exponent = 0;
+        for (int i = negative ? start + 1 : start; i < value.length(); i++) {
+            exponent = exponent * 10 + (value.charAt(i) - '0');
+        }
+        return negative ? -exponent : exponent;
+    }
+
+    private static class State {
+        final StringBuilder builder = new StringBuilder(32);
+        final char[] digits = new char[32];
+        final char[] out = new char[MAX_LENGTH];
+        Locale locale;
+        char separator;
+        char zeroDigit;
+
+        void updateLocale() {
+            Locale current = Locale.getDefault();
+            if (!current.equals(this.locale)) {
+                DecimalFormatSymbols symbols = new DecimalFormatSymbols(current);
+                this.locale = current;
+                this.separator = symbols.getDecimalSeparator();
+                this.zeroDigit = symbols.getZeroDigit();
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.utils;
+
+import org.json.JSONException;
+
+
+// A small pull parser that walks JSON text token by token, so callers can read values
+// straight into their own objects without building a JSONObject / JSONArray tree
+public class JsonPullReader {
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+
+    private final String json;
+    private final int length;
+    private final StringBuilder builder = new StringBuilder();
+    private int position;
+    private int[] stack = new int[16];
+    private int depth = 0;
+    private Token peeked = null;
+    private String peekedValue = null;
+
+    public JsonPullReader(String json) {
+        this(json, 0);
+    }
+
+    public JsonPullReader(String json, int start) {
+        this.json = json;
+        this.length = json.length();
+        this.position = Math.max(start, 0);
+        this.push(EMPTY_DOCUMENT);
+    }
+
+    public void beginArray() throws JSONException {
+        this.expect(Token.BEGIN_ARRAY);
+    }
+
+    public void endArray() throws JSONException {
+        this.expect(Token.END_ARRAY);
+    }
+
+    public void beginObject() throws JSONException {
+        this.expect(Token.BEGIN_OBJECT);
+    }
+
+    public void endObject() throws JSONException {
+        this.expect(Token.END_OBJECT);
+    }
+
+    public boolean hasNext() throws JSONException {
+        Token token = this.peek();
+        return token != Token.END_ARRAY && token != Token.END_OBJECT
+                && token != Token.END_DOCUMENT;
+    }
+
+    public String nextName() throws JSONException {
+        this.expect(Token.NAME);
+        return this.peekedValue;
+    }
+
+    // Strings, numbers and booleans are all returned as text, null as null
+    public String nextString() throws JSONException {
+        Token token = this.peek();
+        if (token != Token.STRING && token != Token.NUMBER && token != Token.BOOLEAN
+                && token != Token.NULL) {
+            throw this.syntaxError("Expected a value but was " + token);
+        }
+        this.peeked = null;
+        return this.peekedValue;
+    }
+
+    public void skipValue() throws JSONException {
+        int count = 0;
+        do {
+            Token token = this.peek();
+            this.peeked = null;
+            if (token == Token.BEGIN_ARRAY || token == Token.BEGIN_OBJECT) {
+                count++;
+            } else if (token == Token.END_ARRAY || token == Token.END_OBJECT) {
+                this.depth--;
+                count--;
+            } else if (token == Token.END_DOCUMENT) {
+                throw this.syntaxError("Unexpected end of input");
+            }
+        } while (count > 0);
+    }
+
+    private void expect(Token expected) throws JSONException {
+        Token token = this.peek();
+        if (token != expected) {
+            throw this.syntaxError("Expected " + expected + " but was " + token);
+        }
+        this.peeked = null;
+        if (expected == Token.END_ARRAY || expected == Token.END_OBJECT) {
+            this.depth--;
+        }
+    }
+
+    public Token peek() throws JSONException {
+        if (this.peeked != null) {
+            return this.peeked;
+        }
+
+        int c;
+        switch (this.stack[this.depth - 1]) {
+            case EMPTY_ARRAY:
+                this.stack[this.depth - 1] = NONEMPTY_ARRAY;
+                c = this.nextNonWhitespace();
+                if (c == ']') {
+                    return this.peeked = Token.END_ARRAY;
+                }
+                this.position--;
+                return this.peeked = this.readValue();
+
+            case NONEMPTY_ARRAY:
+                c = this.nextNonWhitespace();
+                if (c == ']') {
+                    return this.peeked = Token.END_ARRAY;
+                }
+                if (c != ',') {
+                    throw this.syntaxError("Unterminated array");
+                }
+                return this.peeked = this.readValue();
+
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                c = this.nextNonWhitespace();
+                if (c == '}') {
+                    return this.peeked = Token.END_OBJECT;
+                }
+                if (this.stack[this.depth - 1] == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw this.syntaxError("Unterminated object");
+                    }
+                    c = this.nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw this.syntaxError("Expected name");
+                }
+                this.stack[this.depth - 1] = DANGLING_NAME;
+                this.peekedValue = this.readString();
+                return this.peeked = Token.NAME;
+
+            case DANGLING_NAME:
+                if (this.nextNonWhitespace() != ':') {
+                    throw this.syntaxError("Expected ':'");
+                }
+                this.stack[this.depth - 1] = NONEMPTY_OBJECT;
+                return this.peeked = this.readValue();
+
+            case EMPTY_DOCUMENT:
+                this.stack[this.depth - 1] = NONEMPTY_DOCUMENT;
+                return this.peeked = this.readValue();
+
+            default:
+                if (this.nextNonWhitespace() != -1) {
+                    throw this.syntaxError("Unexpected data after document");
+                }
+                return this.peeked = Token.END_DOCUMENT;
+        }
+    }
+
+    private Token readValue() throws JSONException {
+        int c = this.nextNonWhitespace();
+        switch (c) {
+            case -1:
+                throw this.syntaxError("Unexpected end of input");
+            case '{':
+                this.push(EMPTY_OBJECT);
+                return Token.BEGIN_OBJECT;
+            case '[':
+                this.push(EMPTY_ARRAY);
+                return Token.BEGIN_ARRAY;
+            case '"':
+                this.peekedValue = this.readString();
+                return Token.STRING;
+            default:
+                this.position--;
+                String literal = this.readLiteral();
+                if (literal.equals("null")) {
+                    this.peekedValue = null;
+                    return Token.NULL;
+                }
+                this.peekedValue = literal;
+                if (literal.equals("true") || literal.equals("false")) {
+                    return Token.BOOLEAN;
+                }
+                return Token.NUMBER;
+        }
+    }
+
+    private String readString() throws JSONException {
+        int start = this.position;
+        int end = this.json.indexOf('"', start);
+        if (end == -1) {
+            throw this.syntaxError("Unterminated string");
+        }
+        boolean hasEscapes = false;
+        for (int i = start; i < end && !hasEscapes; i++) {
+            hasEscapes = this.json.charAt(i) == '\\';
+        }
+        if (!hasEscapes) {
+            // Plain string without escapes, the common case
+            this.position = end + 1;
+            return this.json.substring(start, end);
+        }
+
+        this.builder.setLength(0);
+        while (this.position < this.length) {
+            char c = this.json.charAt(this.position++);
+            if (c == '"') {
+                return this.builder.toString();
+            }
+            if (c == '\\') {
+                if (this.position >= this.length) {
+                    break;
+                }
+                c = this.json.charAt(this.position++);
+                switch (c) {
+                    case 'u':
+                        if (this.position + 4 > this.length) {
+                            throw this.syntaxError("Unterminated escape sequence");
+                        }
+                        try {
+                            c = (char) Integer.parseInt(
+                                    this.json.substring(this.position, this.position + 4), 16);
+                        } catch (NumberFormatException e) {
+                            throw this.syntaxError("Invalid escape sequence");
+                        }
+                        this.position += 4;
+                        break;
+                    case 'b':
+                        c = '\b';
+                        break;
+                    case 'f':
+                        c = '\f';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                }
+            }
+            this.builder.append(c);
+        }
+        throw this.syntaxError("Unterminated string");
+    }
+
+    private String readLiteral() throws JSONException {
+        int start = this.position;
+        while (this.position < this.length) {
+            char c = this.json.charAt(this.position);
+            if (c == ',' || c == '}' || c == ']' || c == ':' || Character.isWhitespace(c)) {
+                break;
+            }
+            this.position++;
+        }
+        if (start == this.position) {
+            throw this.syntaxError("Expected a value");
+        }
+        return this.json.substring(start, this.position);
+    }
+
+    private int nextNonWhitespace() {
+        while (this.position < this.length) {
+            char c = this.json.charAt(this.position++);
+            if (!Character.isWhitespace(c)) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private void push(int scope) {
+        if (this.depth == this.stack.length) {
+            int[] newStack = new int[this.depth * 2];
+            System.arraycopy(this.stack, 0, newStack, 0, this.depth);
+            this.stack = newStack;
+        }
+        this.stack[this.depth++] = scope;
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at character " + this.position);
+    }
+
+    public enum Token {
+        BEGIN_ARRAY, END_ARRAY, BEGIN_OBJECT, END_OBJECT, NAME, STRING, NUMBER, BOOLEAN, NULL,
+        END_DOCUMENT
+    }
+}
@@ -26,6 +26,8 @@ package nitezh.ministock.utils;
 
 import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
+import java.text.ParsePosition;
+import java.util.Locale;
 
 
 public class NumberTools {
@@ -35,7 +37,7 @@ public class NumberTools {
 
     public static String decimalPlaceFormat(String s) {
         try {
-            return String.format("%." + 2 + "f", Double.parseDouble(s));
+            return DecimalFormatter.format(Double.parseDouble(s), 2);
         } catch (Exception ignored) {
         }
 
@@ -60,12 +62,12 @@ public class NumberTools {
         // If there are more digits before the decimal place than the space
         // available then do the best we can and return with 0 dp.
         if (digits < decimalPos) {
-            return String.format("%.0f", number);
+            return DecimalFormatter.format(numberAsString, number, 0);
         }
         // If we have space to show the whole number, and the max precision
         // is null OR the number is greater than one then we always use 2 dp.
         if (Math.abs(number) >= 100 && (numberAsString.length() - 1 < digits)) {
-            return String.format("%.2f", number);
+            return DecimalFormatter.format(numberAsString, number, 2);
         }
         // If the number is greater than zero than the max precision is 2
         int precision = digits - decimalPos;
@@ -76,7 +78,7 @@ public class NumberTools {
             precision = Math.min(precision, 3);
         }
         // Trim precision as necessary (max precision 4)
-        return String.format("%." + Math.min(precision, 4) + "f", number);
+        return DecimalFormatter.format(numberAsString, number, Math.min(precision, 4));
     }
 
     public static String getTrimmedDouble(double number, int digits, Integer maxPrecision) {
@@ -93,12 +95,12 @@ public class NumberTools {
         // If there are more digits before the decimal place than the space
         // available then do the best we can and return with 0 dp.
         if (digits < decimalPos) {
-            return String.format("%.0f", number);
+            return DecimalFormatter.format(numberAsString, number, 0);
         }
         // If we have space to show the whole number, and the max precision
         // is null OR the number is greater than one then we always use 2 dp.
         if ((Math.abs(number) >= 10 || maxPrecision == null) && (numberAsString.length() - 1 < digits)) {
-            return String.format("%.2f", number);
+            return DecimalFormatter.format(numberAsString, number, 2);
         }
         // If the number is greater than zero than the max precision is 2
         int precision = digits - decimalPos;
@@ -109,39 +111,132 @@ public class NumberTools {
         if (maxPrecision == null)
             maxPrecision = precision;
         // Trim precision as necessary (max precision 4)
-        return String.format("%." + Math.min(precision, maxPrecision) + "f", number);
+        return DecimalFormatter.format(numberAsString, number, Math.min(precision, maxPrecision));
     }
 
+    // Powers of ten that are exact as doubles
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    // Mantissas up to this many digits are exact, so one division rounds correctly
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    // Formatters are not thread-safe, so each thread keeps one for the current locale
+    private static final ThreadLocal<LocaleFormat> mLocaleFormat = new ThreadLocal<>();
+
     public static Double parseDouble(String value) {
         return parseDouble(value, null);
     }
 
     public static Double parseDouble(String value, Double defaultValue) {
-        try {
-            char separator = new DecimalFormatSymbols().getDecimalSeparator();
-            value = value.replace('.', separator);
-            return NumberFormat.getInstance().parse(value).doubleValue();
-        } catch (Exception e) {
-            return defaultValue;
+        double parsed = parseDoubleOrNaN(value);
+        return !Double.isNaN(parsed) ? Double.valueOf(parsed) : defaultValue;
+    }
+
+    public static double parseDouble(String value, double defaultValue) {
+        double parsed = parseDoubleOrNaN(value);
+        return !Double.isNaN(parsed) ? parsed : defaultValue;
+    }
+
+    // Returns NaN rather than throwing when the value cannot be parsed
+    public static double parseDoubleOrNaN(String value) {
+        if (value == null) {
+            return Double.NaN;
         }
+        double parsed = parseAsciiDecimal(value);
+        if (!Double.isNaN(parsed)) {
+            return parsed;
+        }
+        return parseLocalised(value);
+    }
+
+    // Handles the plain "-123.45" form the providers return, anything else returns NaN
+    private static double parseAsciiDecimal(String value) {
+        int length = value.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && value.charAt(0) == '-') {
+            negative = true;
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean seenPoint = false;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (mantissa != 0 || c != '0') {
+                    digits++;
+                }
+                if (digits > MAX_EXACT_DIGITS) {
+                    return Double.NaN;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (seenPoint) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                return Double.NaN;
+            }
+        }
+
+        // Require at least one digit, and reject "." and "-"
+        int digitCount = length - (negative ? 1 : 0) - (seenPoint ? 1 : 0);
+        if (digitCount == 0 || fractionDigits >= POWERS_OF_TEN.length) {
+            return Double.NaN;
+        }
+        double result = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -result : result;
+    }
+
+    private static double parseLocalised(String value) {
+        LocaleFormat localeFormat = mLocaleFormat.get();
+        Locale locale = Locale.getDefault();
+        if (localeFormat == null || !localeFormat.locale.equals(locale)) {
+            localeFormat = new LocaleFormat(locale);
+            mLocaleFormat.set(localeFormat);
+        }
+
+        ParsePosition position = new ParsePosition(0);
+        Number number = localeFormat.format.parse(
+                value.replace('.', localeFormat.separator), position);
+        return number != null ? number.doubleValue() : Double.NaN;
     }
 
     public static String getNormalisedVolume(String value) {
-        Double volume;
         try {
-            volume = parseDouble(value);
-            if (volume > 999999999999D)
-                value = String.format("%.0fT", volume / 1000000000000D);
-            else if (volume > 999999999D)
-                value = String.format("%.0fB", volume / 1000000000D);
-            else if (volume > 999999D)
-                value = String.format("%.0fM", volume / 1000000D);
-            else if (volume > 999D)
-                value = String.format("%.0fK", volume / 1000D);
-            else
-                value = String.format("%.0f", volume);
+            return getNormalisedVolume(parseDouble(value));
         } catch (Exception ignored) {
         }
         return value;
     }
+
+    public static String getNormalisedVolume(double volume) {
+        if (volume > 999999999999D)
+            return DecimalFormatter.format(volume / 1000000000000D, 0) + "T";
+        else if (volume > 999999999D)
+            return DecimalFormatter.format(volume / 1000000000D, 0) + "B";
+        else if (volume > 999999D)
+            return DecimalFormatter.format(volume / 1000000D, 0) + "M";
+        else if (volume > 999D)
+            return DecimalFormatter.format(volume / 1000D, 0) + "K";
+        else
+            return DecimalFormatter.format(volume, 0);
+    }
+
+    private static class LocaleFormat {
+        final Locale locale;
+        final NumberFormat format;
+        final char separator;
+
+        LocaleFormat(Locale locale) {
+            this.locale = locale;
+            this.format = NumberFormat.getInstance(locale);
+            this.separator = new DecimalFormatSymbols(locale).getDecimalSeparator();
+        }
+    }
 }
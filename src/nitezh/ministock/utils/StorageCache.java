@@ -24,44 +24,157 @@
 
 package nitezh.ministock.utils;
 
-import org.json.JSONException;
-import org.json.JSONObject;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
 
 import nitezh.ministock.Storage;
 
 
+// One file per entry, so writing an entry never rewrites the rest of the cache
 public class StorageCache extends Cache {
 
     public static final String JSON_CACHE = "JsonCache";
-    private static String mCache = "";
-    private Storage storage = null;
+    public static final String CACHE_PREFIX = "JsonCache.";
+    public static final String CACHE_DIR = "urlcache";
+    public static final int MAX_ENTRIES = 250;
+    public static final long MAX_BYTES = 1024 * 1024;
+    public static final long STALE_RETENTION = 7 * 24 * 60 * 60 * 1000L;
+    // Set once entries left in the main preferences by older versions are removed
+    private static final String PREFS_CLEARED = "JsonCacheCleared";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final CacheIndex mIndex = new CacheIndex(MAX_ENTRIES, MAX_BYTES);
+    private final Storage storage;
+    private final File dir;
+    private final CacheIndex index;
 
-    public StorageCache(Storage storage) {
-        if (storage != null) {
-            this.storage = storage;
-        }
+    public StorageCache(Storage storage, File cacheDir) {
+        this(storage, cacheDir, mIndex);
+    }
+
+    // A cache with its own index, the shared one is loaded from the first directory used
+    public StorageCache(Storage storage, File cacheDir, CacheIndex index) {
+        this.storage = storage;
+        this.dir = cacheDir != null ? new File(cacheDir, CACHE_DIR) : null;
+        this.index = index;
     }
 
     @Override
-    protected void persistCache(JSONObject cache) {
-        mCache = cache.toString();
-        if (this.storage != null) {
-            this.storage.putString(JSON_CACHE, mCache);
-            this.storage.apply();
+    protected CacheIndex getIndex() {
+        synchronized (this.index) {
+            if (this.dir != null && this.index.claimLoad()) {
+                loadIndex();
+            }
+        }
+        return this.index;
+    }
+
+    private void loadIndex() {
+        long now = System.currentTimeMillis();
+        File[] files = this.dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String data = file.getName().endsWith(TEMP_SUFFIX) ? null : readFile(file);
+                int split = data != null ? data.indexOf('\n') : -1;
+                CacheItem item = split > 0 ? CacheItem.fromJson(data.substring(split + 1)) : null;
+                if (item != null && !item.isExpired(now - STALE_RETENTION)) {
+                    this.index.load(data.substring(0, split), item);
+                } else {
+                    file.delete();
+                }
+            }
+        }
+        this.clearPreferences();
+    }
+
+    private void clearPreferences() {
+        if (this.storage == null || this.storage.getBoolean(PREFS_CLEARED, false)) {
+            return;
+        }
+        for (String key : this.storage.getAll().keySet()) {
+            if (key.startsWith(CACHE_PREFIX)) {
+                this.storage.remove(key);
+            }
+        }
+        this.storage.remove(JSON_CACHE);
+        this.storage.putBoolean(PREFS_CLEARED, true);
+        this.storage.apply();
+    }
+
+    private static String readFile(File file) {
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int count;
+                while ((count = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, count);
+                }
+                return out.toString("UTF-8");
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Urls are too long and varied for file names, so entries are named by a hash
+    private File getFile(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+            StringBuilder name = new StringBuilder();
+            for (byte b : digest) {
+                name.append(String.format("%02x", b & 0xff));
+            }
+            return new File(this.dir, name.toString());
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return new File(this.dir, Integer.toHexString(key.hashCode()));
         }
     }
 
     @Override
-    protected JSONObject loadCache() {
-        if (storage != null && mCache.equals("")) {
-            mCache = storage.getString(JSON_CACHE, "");
+    protected long getStaleRetention() {
+        return STALE_RETENTION;
+    }
+
+    // Written to a temporary file first, so a crash never leaves a half written entry
+    @Override
+    protected void persistItem(String key, CacheItem item) {
+        if (this.dir == null || (!this.dir.isDirectory() && !this.dir.mkdirs())) {
+            return;
         }
-        JSONObject cache = new JSONObject();
+        File file = this.getFile(key);
+        File temp = new File(this.dir, file.getName() + TEMP_SUFFIX);
         try {
-            cache = new JSONObject(mCache);
-        } catch (JSONException ignore) {
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                out.write((key + "\n" + item.toJson()).getBytes("UTF-8"));
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                temp.delete();
+            }
+        } catch (IOException e) {
+            temp.delete();
         }
+    }
 
-        return cache;
+    @Override
+    protected void removeItems(List<String> keys) {
+        if (this.dir != null) {
+            for (String key : keys) {
+                this.getFile(key).delete();
+            }
+        }
     }
 }
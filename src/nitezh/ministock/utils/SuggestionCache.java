@@ -0,0 +1,155 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.utils;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+// Parsed suggestion lists by normalised query, kept apart from the quote cache
+public class SuggestionCache {
+
+    private final LinkedHashMap<String, Entry> entries;
+    private final long ttl;
+    private final long staleWindow;
+
+    // Times are in milliseconds, entries past ttl are only served while within staleWindow
+    public SuggestionCache(final int maxEntries, long ttl, long staleWindow) {
+        this.ttl = ttl;
+        this.staleWindow = staleWindow;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return this.size() > maxEntries;
+            }
+        };
+    }
+
+    public static String normalise(String query) {
+        return query != null ? query.trim().toLowerCase().replaceAll("\\s+", " ") : "";
+    }
+
+    public synchronized List<Map<String, String>> get(String query, long now) {
+        Entry entry = this.entries.get(normalise(query));
+        if (entry == null || now - entry.time > this.ttl) {
+            return null;
+        }
+        entry.hits++;
+        return entry.results;
+    }
+
+    // For when a fresh answer cannot be had, such as while offline
+    public synchronized List<Map<String, String>> getStale(String query, long now) {
+        Entry entry = this.entries.get(normalise(query));
+        if (entry == null || now - entry.time > this.ttl + this.staleWindow) {
+            return null;
+        }
+        return entry.results;
+    }
+
+    public synchronized void put(String query, List<Map<String, String>> results, long now) {
+        String key = normalise(query);
+        Entry previous = this.entries.get(key);
+        this.entries.put(key, new Entry(results, now, previous != null ? previous.hits + 1 : 1));
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    // The most used queries, so a restart keeps the ones worth keeping
+    public synchronized String toJson(int maxQueries) {
+        List<Map.Entry<String, Entry>> hottest = new ArrayList<>(this.entries.entrySet());
+        Collections.sort(hottest, new Comparator<Map.Entry<String, Entry>>() {
+            @Override
+            public int compare(Map.Entry<String, Entry> a, Map.Entry<String, Entry> b) {
+                return b.getValue().hits - a.getValue().hits;
+            }
+        });
+
+        JSONArray json = new JSONArray();
+        try {
+            for (Map.Entry<String, Entry> item : hottest.subList(0, Math.min(maxQueries, hottest.size()))) {
+                JSONArray results = new JSONArray();
+                for (Map<String, String> result : item.getValue().results) {
+                    results.put(new JSONObject()
+                            .put("symbol", result.get("symbol"))
+                            .put("name", result.get("name")));
+                }
+                json.put(new JSONObject()
+                        .put("query", item.getKey())
+                        .put("time", item.getValue().time)
+                        .put("hits", item.getValue().hits)
+                        .put("results", results));
+            }
+        } catch (JSONException ignored) {
+        }
+        return json.toString();
+    }
+
+    public synchronized void loadJson(String value) {
+        if (value == null || value.equals("")) {
+            return;
+        }
+        try {
+            JSONArray json = new JSONArray(value);
+            for (int i = json.length() - 1; i >= 0; i--) {
+                JSONObject item = json.getJSONObject(i);
+                JSONArray jsonResults = item.getJSONArray("results");
+                List<Map<String, String>> results = new ArrayList<>();
+                for (int j = 0; j < jsonResults.length(); j++) {
+                    Map<String, String> result = new HashMap<>();
+                    result.put("symbol", jsonResults.getJSONObject(j).getString("symbol"));
+                    result.put("name", jsonResults.getJSONObject(j).getString("name"));
+                    results.add(result);
+                }
+                this.entries.put(item.getString("query"),
+                        new Entry(results, item.getLong("time"), item.getInt("hits")));
+            }
+        } catch (JSONException ignored) {
+        }
+    }
+
+    private static class Entry {
+        private final List<Map<String, String>> results;
+        private final long time;
+        private int hits;
+
+        Entry(List<Map<String, String>> results, long time, int hits) {
+            this.results = Collections.unmodifiableList(new ArrayList<>(results));
+            this.time = time;
+            this.hits = hits;
+        }
+    }
+}
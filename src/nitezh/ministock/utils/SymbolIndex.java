@@ -0,0 +1,203 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+// On-device symbol and name lookup, sorted key arrays answer prefix queries by binary search
+public class SymbolIndex {
+
+    private static final SymbolIndex mInstance = new SymbolIndex();
+
+    private final List<String> symbols = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private final HashMap<String, Integer> entries = new HashMap<>();
+
+    // Rebuilt lazily after additions, so a batch of quotes costs a single sort
+    private String[] symbolKeys = new String[0];
+    private int[] symbolEntries = new int[0];
+    private String[] nameKeys = new String[0];
+    private int[] nameEntries = new int[0];
+    private boolean dirty = false;
+
+    public static SymbolIndex getInstance() {
+        return mInstance;
+    }
+
+    public synchronized int size() {
+        return this.symbols.size();
+    }
+
+    public synchronized void add(String symbol, String name) {
+        if (symbol == null || symbol.trim().equals("")) {
+            return;
+        }
+        symbol = symbol.trim().toUpperCase();
+        name = name != null ? name.trim() : "";
+
+        Integer entry = this.entries.get(symbol);
+        if (entry == null) {
+            this.entries.put(symbol, this.symbols.size());
+            this.symbols.add(symbol);
+            this.names.add(name);
+            this.dirty = true;
+        } else if (!name.equals("") && !name.equals(this.names.get(entry))) {
+            this.names.set(entry, name);
+            this.dirty = true;
+        }
+    }
+
+    // Reads one "SYMBOL<tab>Name" entry per line, lines starting with # are comments
+    public synchronized void load(Reader listing) throws IOException {
+        BufferedReader reader = new BufferedReader(listing);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("#")) {
+                continue;
+            }
+            int tab = line.indexOf('\t');
+            if (tab > 0) {
+                this.add(line.substring(0, tab), line.substring(tab + 1));
+            } else {
+                this.add(line, "");
+            }
+        }
+    }
+
+    // Symbol matches come first, then matches on the name or any word of it
+    public synchronized List<Map<String, String>> search(String query, int limit) {
+        List<Map<String, String>> results = new ArrayList<>();
+        query = query != null ? query.trim().toLowerCase() : "";
+        if (query.equals("")) {
+            return results;
+        }
+        if (this.dirty) {
+            this.rebuild();
+        }
+
+        Set<Integer> found = new LinkedHashSet<>();
+        Integer exact = this.entries.get(query.toUpperCase());
+        if (exact != null) {
+            found.add(exact);
+        }
+        collect(this.symbolKeys, this.symbolEntries, query, limit, found);
+        collect(this.nameKeys, this.nameEntries, query, limit, found);
+
+        for (int entry : found) {
+            Map<String, String> result = new HashMap<>();
+            result.put("symbol", this.symbols.get(entry));
+            result.put("name", this.names.get(entry));
+            results.add(result);
+        }
+        return results;
+    }
+
+    private static void collect(String[] keys, int[] keyEntries, String prefix, int limit,
+                                Set<Integer> found) {
+        int i = lowerBound(keys, prefix);
+        while (i < keys.length && found.size() < limit && keys[i].startsWith(prefix)) {
+            found.add(keyEntries[i]);
+            i++;
+        }
+    }
+
+    private static int lowerBound(String[] keys, String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void rebuild() {
+        List<KeyEntry> symbolKeyEntries = new ArrayList<>(this.symbols.size());
+        List<KeyEntry> nameKeyEntries = new ArrayList<>(this.symbols.size() * 3);
+        for (int entry = 0; entry < this.symbols.size(); entry++) {
+            symbolKeyEntries.add(new KeyEntry(this.symbols.get(entry).toLowerCase(), entry));
+
+            String name = this.names.get(entry).toLowerCase();
+            if (name.equals("")) {
+                continue;
+            }
+            nameKeyEntries.add(new KeyEntry(name, entry));
+            for (String word : name.split("[^\\p{L}\\p{N}]+")) {
+                if (!word.equals("") && !name.startsWith(word)) {
+                    nameKeyEntries.add(new KeyEntry(word, entry));
+                }
+            }
+        }
+
+        KeyEntry[] sortedSymbols = symbolKeyEntries.toArray(new KeyEntry[symbolKeyEntries.size()]);
+        Arrays.sort(sortedSymbols);
+        this.symbolKeys = new String[sortedSymbols.length];
+        this.symbolEntries = new int[sortedSymbols.length];
+        for (int i = 0; i < sortedSymbols.length; i++) {
+            this.symbolKeys[i] = sortedSymbols[i].key;
+            this.symbolEntries[i] = sortedSymbols[i].entry;
+        }
+
+        KeyEntry[] sortedNames = nameKeyEntries.toArray(new KeyEntry[nameKeyEntries.size()]);
+        Arrays.sort(sortedNames);
+        this.nameKeys = new String[sortedNames.length];
+        this.nameEntries = new int[sortedNames.length];
+        for (int i = 0; i < sortedNames.length; i++) {
+            this.nameKeys[i] = sortedNames[i].key;
+            this.nameEntries[i] = sortedNames[i].entry;
+        }
+        this.dirty = false;
+    }
+
+    private static class KeyEntry implements Comparable<KeyEntry> {
+        private final String key;
+        private final int entry;
+
+        KeyEntry(String key, int entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+
+        @Override
+        public int compareTo(KeyEntry other) {
+            int compare = this.key.compareTo(other.key);
+            return compare != 0 ? compare : this.entry - other.entry;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.zip.GZIPInputStream;
+
+
+public class UrlConnectionTransport implements HttpTransport {
+
+    private static final int CONNECT_TIMEOUT = 30000;
+    private static final int READ_TIMEOUT = 60000;
+
+    static {
+        // Connections are only returned to the keep-alive pool once fully read and closed
+        System.setProperty("http.keepAlive", "true");
+    }
+
+    private static String readFully(InputStream stream) throws IOException {
+        BufferedReader r = new BufferedReader(new InputStreamReader(stream));
+        StringBuilder builder = new StringBuilder();
+        String line;
+        while ((line = r.readLine()) != null) {
+            builder.append(line).append("\n");
+        }
+        return builder.toString();
+    }
+
+    private static void drain(InputStream stream) {
+        if (stream == null) {
+            return;
+        }
+        byte[] buffer = new byte[1024];
+        try {
+            while (stream.read(buffer) != -1) {
+            }
+        } catch (IOException ignored) {
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    @Override
+    public Response get(String url, String etag, String lastModified) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        if (etag != null) {
+            connection.setRequestProperty("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            connection.setRequestProperty("If-Modified-Since", lastModified);
+        }
+
+        int status = connection.getResponseCode();
+        String responseEtag = connection.getHeaderField("ETag");
+        String responseLastModified = connection.getHeaderField("Last-Modified");
+        if (status != Response.HTTP_OK) {
+            // Consume any error body so the connection can still be reused
+            drain(connection.getErrorStream());
+            return new Response(status, null, responseEtag, responseLastModified);
+        }
+
+        InputStream stream = connection.getInputStream();
+        try {
+            if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+                stream = new GZIPInputStream(stream);
+            }
+            String body = readFully(stream);
+            return new Response(status, body, responseEtag, responseLastModified);
+        } finally {
+            stream.close();
+        }
+    }
+}
@@ -24,40 +24,74 @@
 
 package nitezh.ministock.utils;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.net.URLConnection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 
 
 public class UrlDataTools {
 
+    // Fetches currently in progress, keyed by url, so concurrent callers share one request
+    private static final HashMap<String, FutureTask<String>> mInFlight = new HashMap<>();
+
+    // Background refreshes of stale entries that were served to the caller
+    private static final HashSet<String> mRevalidating = new HashSet<>();
+    private static final ExecutorService mRevalidateExecutor = Executors.newFixedThreadPool(2,
+            new DaemonThreadFactory("Revalidate"));
+    private static volatile HttpTransport mTransport = new UrlConnectionTransport();
+    private static volatile OnRevalidatedListener mRevalidatedListener;
+
     private UrlDataTools() {
     }
 
-    private static String inputStreamToString(InputStream stream) throws IOException {
-        BufferedReader r = new BufferedReader(new InputStreamReader(stream));
-        StringBuilder builder = new StringBuilder();
-        String line;
-        while ((line = r.readLine()) != null) {
-            builder.append(line).append("\n");
-        }
-        return builder.toString();
+    public static void setTransport(HttpTransport transport) {
+        mTransport = transport;
+    }
+
+    public static void setOnRevalidatedListener(OnRevalidatedListener listener) {
+        mRevalidatedListener = listener;
     }
 
-    private static String getUrlData(String url) {
+    private static String getUrlData(String url, Cache cache, Integer ttl) {
+        String requestUrl = url;
         // Ensure we always request some data
-        if (!url.contains("INDU")) {
-            url = url.replace("&s=", "&s=INDU+");
+        if (!requestUrl.contains("INDU")) {
+            requestUrl = requestUrl.replace("&s=", "&s=INDU+");
+        }
+
+        // An expired entry can still be revalidated instead of downloaded again
+        CacheItem cached = cache.getItem(url);
+        String etag = cached != null ? cached.getEtag() : null;
+        String lastModified = cached != null ? cached.getLastModified() : null;
+
+        try {
+            HttpTransport.Response response = mTransport.get(requestUrl, etag, lastModified);
+            if (response.isNotModified() && cached != null) {
+                cache.put(url, cached.getValue(), ttl, etag, lastModified);
+                return cached.getValue();
+            }
+            if (response.isOk()) {
+                cache.put(url, response.getBody(), ttl, response.getEtag(),
+                        response.getLastModified());
+                return response.getBody();
+            }
+        } catch (IOException ignored) {
         }
+        return null;
+    }
 
+    // Plain request for callers that keep their own cache of the parsed result
+    public static String getUrlData(String url) {
         try {
-            URLConnection connection = new URL(url).openConnection();
-            connection.setConnectTimeout(30000);
-            connection.setReadTimeout(60000);
-            return inputStreamToString(connection.getInputStream());
+            HttpTransport.Response response = mTransport.get(url, null, null);
+            if (response.isOk()) {
+                return response.getBody();
+            }
         } catch (IOException ignored) {
         }
         return null;
@@ -69,11 +103,102 @@ public class UrlDataTools {
             return data;
         }
 
-        data = getUrlData(url);
+        data = getSharedUrlData(url, cache, ttl);
         if (data != null) {
-            cache.put(url, data, ttl);
             return data;
         }
         return "";
     }
+
+    // Serves an entry up to staleWindow seconds past its expiry while it is refreshed in the background
+    public static String getCachedUrlData(String url, Cache cache, Integer ttl, int staleWindow) {
+        return getCachedUrlItem(url, cache, ttl, staleWindow).getValue();
+    }
+
+    // As above, but the expiry of the served entry tells the caller how old the data is
+    public static CacheItem getCachedUrlItem(String url, Cache cache, Integer ttl, int staleWindow) {
+        long now = System.currentTimeMillis();
+        CacheItem item = cache.getItem(url);
+        if (item != null && item.isExpired(now)
+                && now - item.getExpiry() <= staleWindow * 1000L) {
+            scheduleRevalidation(url, cache, ttl, item.getValue());
+            return item;
+        }
+
+        String data = getCachedUrlData(url, cache, ttl);
+        item = cache.getItem(url);
+        if (item != null && item.getValue().equals(data)) {
+            return item;
+        }
+        return new CacheItem(data, now + (ttl != null ? ttl : 0) * 1000L);
+    }
+
+    private static void scheduleRevalidation(final String url, final Cache cache,
+                                             final Integer ttl, final String staleData) {
+        synchronized (mRevalidating) {
+            if (!mRevalidating.add(url)) {
+                return;
+            }
+        }
+
+        mRevalidateExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                String data;
+                try {
+                    data = getSharedUrlData(url, cache, ttl);
+                } finally {
+                    synchronized (mRevalidating) {
+                        mRevalidating.remove(url);
+                    }
+                }
+
+                OnRevalidatedListener listener = mRevalidatedListener;
+                if (data != null && !data.equals(staleData) && listener != null) {
+                    listener.onRevalidated(url);
+                }
+            }
+        });
+    }
+
+    private static String getSharedUrlData(final String url, final Cache cache, final Integer ttl) {
+        FutureTask<String> task;
+        boolean isOwner = false;
+        synchronized (mInFlight) {
+            task = mInFlight.get(url);
+            if (task == null) {
+                task = new FutureTask<>(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return getUrlData(url, cache, ttl);
+                    }
+                });
+                mInFlight.put(url, task);
+                isOwner = true;
+            }
+        }
+
+        // The first caller runs the fetch on its own thread, the others wait for its result
+        if (isOwner) {
+            try {
+                task.run();
+            } finally {
+                synchronized (mInFlight) {
+                    mInFlight.remove(url);
+                }
+            }
+        }
+
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ignored) {
+        }
+        return null;
+    }
+
+    public interface OnRevalidatedListener {
+        void onRevalidated(String url);
+    }
 }